@@ -0,0 +1,89 @@
+package orderbook.soak;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Thresholds a soak run has to stay within, stored as properties. A key is a result name with a {@code .max} suffix
+ * for results that must not be above the value, or {@code .min} for results that must not be below it:
+ * <pre>
+ * write.p99.micros.max=500
+ * writes.per.second.min=200000
+ * </pre>
+ * Results not named in the file are reported but not checked.
+ */
+final class Baseline {
+
+    private static final String MAX = ".max";
+    private static final String MIN = ".min";
+
+    private Baseline() {
+    }
+
+    static List<String> regressions(Path path, Map<String, Long> results) throws IOException {
+        var thresholds = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            thresholds.load(reader);
+        }
+
+        var regressions = new ArrayList<String>();
+        for (var key : new TreeMap<>(thresholds).keySet()) {
+            var name = (String) key;
+            var threshold = threshold(name, thresholds.getProperty(name));
+            var isMax = name.endsWith(MAX);
+            if (!isMax && !name.endsWith(MIN)) throw new IllegalArgumentException(
+                    String.format("Baseline key %s must end with %s or %s", name, MAX, MIN)
+            );
+
+            var suffix = isMax ? MAX : MIN;
+            var result = results.get(name.substring(0, name.length() - suffix.length()));
+            if (result == null) {
+                regressions.add(String.format("%s: no such result", name));
+            } else if (isMax ? result > threshold : result < threshold) {
+                regressions.add(String.format("%s: %s is %s %s", name, result, isMax ? "above" : "below", threshold));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Writes thresholds for every result of a run, with the given headroom. Throughput is the only result where
+     * higher is better, every other result gets a maximum.
+     */
+    static void record(Path path, Map<String, Long> results, double tolerance) throws IOException {
+        var thresholds = new TreeMap<String, String>();
+        for (var result : results.entrySet()) {
+            if (isThroughput(result.getKey())) {
+                thresholds.put(result.getKey() + MIN, String.valueOf((long) (result.getValue() * (1 - tolerance))));
+            } else {
+                // a result of zero, such as no GC pause at all, still gets some room
+                thresholds.put(result.getKey() + MAX, String.valueOf((long) Math.ceil(Math.max(result.getValue(), 1) * (1 + tolerance))));
+            }
+        }
+
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writer.write("# Soak thresholds, see orderbook.soak.Baseline\n");
+            for (var threshold : thresholds.entrySet()) writer.write(threshold.getKey() + "=" + threshold.getValue() + "\n");
+        }
+    }
+
+    private static long threshold(String name, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Baseline key %s must have a whole number but has %s", name, value), e);
+        }
+    }
+
+    static boolean isThroughput(String name) {
+        return name.endsWith(".per.second");
+    }
+}
@@ -0,0 +1,116 @@
+package orderbook.soak;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Seeded stream of quotes for a soak run. Every instrument has a mid price doing a random walk in ticks, and a quote
+ * of a source is a ladder of one to the configured number of levels per side around it, with spreads and quantities
+ * varying per source. Sources are picked uniformly or by a Zipf distribution, where a few sources update most often
+ * as with real venues.
+ * <p>
+ * Events are generated up front, so producing them costs a writer nothing while it is measured.
+ */
+final class MarketDataGenerator {
+
+    static final int PRICE_SCALE = 5;
+    static final long LOT = 1_000;
+    private static final long INITIAL_MID = 110_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    private final SoakConfig config;
+    private final SplittableRandom random;
+    private final long[] mids;
+    private final double[] sourceWeights;
+
+    MarketDataGenerator(SoakConfig config, int stream) {
+        this.config = config;
+        // every stream of the same seed is the same regardless of how many others there are
+        var root = new SplittableRandom(config.seed);
+        for (int i = 0; i < stream; i++) root.split();
+        this.random = root.split();
+        this.mids = new long[config.instruments];
+        Arrays.fill(mids, INITIAL_MID);
+        this.sourceWeights = sourceWeights(config);
+    }
+
+    static String instrument(int index) {
+        return "INSTR" + index;
+    }
+
+    static String source(int index) {
+        return "SOURCE" + index;
+    }
+
+    List<MarketData> generate(int count) {
+        var events = new ArrayList<MarketData>(count);
+        for (int i = 0; i < count; i++) events.add(next());
+        return events;
+    }
+
+    MarketData next() {
+        var instrument = random.nextInt(config.instruments);
+        mids[instrument] = Math.max(mids[instrument] + random.nextInt(-2, 3), 10 * (config.levelsPerSide + 10L));
+        var source = source();
+        var mid = mids[instrument];
+        // spread and quantity ladder are a property of the source, so a source keeps quoting in its own style
+        var halfSpread = 1 + source % 5;
+        var baseLots = 1 + source % 10;
+
+        var bidCount = 1 + random.nextInt(config.levelsPerSide);
+        var offerCount = 1 + random.nextInt(config.levelsPerSide);
+        var priceList = new ArrayList<PriceLevel>(bidCount + offerCount);
+        for (int level = 0; level < bidCount; level++) {
+            priceList.add(new PriceLevel(price(mid - halfSpread - level), quantity(baseLots, level), BUY));
+        }
+        for (int level = 0; level < offerCount; level++) {
+            priceList.add(new PriceLevel(price(mid + halfSpread + level), quantity(baseLots, level), SELL));
+        }
+        return new MarketData(source(source), instrument(instrument), priceList);
+    }
+
+    private int source() {
+        if (sourceWeights == null) return random.nextInt(config.sources);
+
+        var target = random.nextDouble();
+        int low = 0;
+        int high = sourceWeights.length - 1;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (sourceWeights[middle] < target) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private long quantity(long baseLots, int level) {
+        return LOT * (baseLots + level + random.nextInt(5));
+    }
+
+    private static BigDecimal price(long ticks) {
+        return BigDecimal.valueOf(ticks, PRICE_SCALE);
+    }
+
+    // cumulative Zipf distribution over sources, null for uniform
+    private static double[] sourceWeights(SoakConfig config) {
+        if (config.skew.equals("uniform")) return null;
+
+        var weights = new double[config.sources];
+        var total = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            total += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            weights[i] = total;
+        }
+        for (int i = 0; i < weights.length; i++) weights[i] /= total;
+        return weights;
+    }
+}
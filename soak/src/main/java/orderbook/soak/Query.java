@@ -0,0 +1,60 @@
+package orderbook.soak;
+
+import orderbook.OrderBook;
+import orderbook.marketdata.Side;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the readers of a soak run pick from, each touching a different part of the published snapshot.
+ */
+enum Query {
+    TOP("top") {
+        @Override
+        Object run(OrderBook orderBook, SplittableRandom random) {
+            return orderBook.getTopOfBook();
+        }
+    },
+    DEPTH("depth") {
+        @Override
+        Object run(OrderBook orderBook, SplittableRandom random) {
+            return orderBook.getDepthBySide(side(random), 10);
+        }
+    },
+    VWAP("vwap") {
+        @Override
+        Object run(OrderBook orderBook, SplittableRandom random) {
+            return orderBook.getSweepVwapForQuantityAndSide(MarketDataGenerator.LOT * (1 + random.nextInt(50)), side(random));
+        }
+    },
+    ORDERS("orders") {
+        @Override
+        Object run(OrderBook orderBook, SplittableRandom random) {
+            return orderBook.getOrdersBySide(side(random));
+        }
+    };
+
+    static final Set<String> NAMES = Arrays.stream(values()).map(query -> query.name).collect(Collectors.toSet());
+
+    final String name;
+
+    Query(String name) {
+        this.name = name;
+    }
+
+    abstract Object run(OrderBook orderBook, SplittableRandom random);
+
+    static Query of(String name) {
+        for (var query : values()) {
+            if (query.name.equals(name)) return query;
+        }
+        throw new IllegalArgumentException("Unknown query " + name);
+    }
+
+    private static Side side(SplittableRandom random) {
+        return random.nextBoolean() ? Side.BUY : Side.SELL;
+    }
+}
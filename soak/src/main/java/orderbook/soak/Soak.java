@@ -0,0 +1,296 @@
+package orderbook.soak;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import orderbook.Histogram;
+import orderbook.MetricsRecorder;
+import orderbook.OrderBook;
+import orderbook.OrderBookMetrics;
+import orderbook.PriceScale;
+import orderbook.marketdata.MarketData;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static orderbook.OrderBookMetrics.Operation.MARKET_DATA_EVENT;
+
+/**
+ * Latency soak of {@link OrderBook}: writer threads replay seeded {@link MarketDataGenerator} streams into the books
+ * in bursts at a fixed rate while reader threads query them, for a warmup and then a measured duration.
+ * <p>
+ * Write latency is taken from the time a burst was due to start, not from when the writer got to it, so a stall
+ * shows up in every event it delayed rather than in one slow sample. Readers run back to back and record service
+ * time. GC pauses come from the collector notifications of the JVM, and CAS retries from the books' metrics.
+ * <p>
+ * With {@code --baseline} the run fails with exit code 1 when a result regressed past the thresholds of the file,
+ * see {@link Baseline}, and {@code --recordBaseline} writes such a file from the results of the run.
+ */
+public class Soak {
+
+    private static final int EVENTS_PER_WRITER = 1 << 16;
+    private static final int QUERIES_PER_READER = 1 << 16;
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final SoakConfig config;
+    private final OrderBook[] books;
+    private final AtomicReference<Phase> phase = new AtomicReference<>(new Phase());
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean running = true;
+
+    Soak(SoakConfig config) {
+        this.config = config;
+        this.books = new OrderBook[config.instruments];
+        var metrics = new PhaseMetrics();
+        for (int i = 0; i < books.length; i++) {
+            books[i] = new OrderBook(MarketDataGenerator.instrument(i), PriceScale.of(MarketDataGenerator.PRICE_SCALE), metrics);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SoakConfig config;
+        try {
+            config = SoakConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Soak [--seed=n] [--instruments=n] [--sources=n] [--levels=n] [--skew=uniform|zipf] "
+                    + "[--writers=n] [--readers=n] [--duration=s] [--warmup=s] [--burst=n] [--burstInterval=micros] "
+                    + "[--queryMix=top:70,depth:15,vwap:10,orders:5] [--baseline=file] [--recordBaseline=file] [--tolerance=0.5]");
+            System.exit(1);
+            return;
+        }
+
+        System.out.println(config);
+        var results = new Soak(config).run();
+        report(results);
+
+        if (config.recordBaseline != null) {
+            Baseline.record(config.recordBaseline, results, config.tolerance);
+            System.out.println("Recorded baseline " + config.recordBaseline);
+        }
+        if (config.baseline != null) {
+            var regressions = Baseline.regressions(config.baseline, results);
+            if (!regressions.isEmpty()) {
+                System.err.println("Regressions against " + config.baseline + ":");
+                regressions.forEach(regression -> System.err.println("  " + regression));
+                System.exit(1);
+            }
+            System.out.println("Within baseline " + config.baseline);
+        }
+    }
+
+    Map<String, Long> run() throws InterruptedException {
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < config.writers; i++) threads.add(thread("soak-writer-" + i, writer(i)));
+        for (int i = 0; i < config.readers; i++) threads.add(thread("soak-reader-" + i, reader(i)));
+
+        var gcListener = listenToGc();
+        try {
+            threads.forEach(Thread::start);
+            TimeUnit.SECONDS.sleep(config.warmupSeconds);
+            var measured = new Phase();
+            phase.set(measured);
+            TimeUnit.SECONDS.sleep(config.durationSeconds);
+            measured.end();
+            running = false;
+            for (var thread : threads) thread.join();
+        } finally {
+            running = false;
+            removeGcListener(gcListener);
+        }
+
+        var error = failure.get();
+        if (error != null) throw new IllegalStateException("Soak thread failed", error);
+        return phase.get().results();
+    }
+
+    private Runnable writer(int index) {
+        var generator = new MarketDataGenerator(config, index);
+        var events = generator.generate(EVENTS_PER_WRITER).toArray(new MarketData[0]);
+        var eventBooks = new OrderBook[events.length];
+        for (int i = 0; i < events.length; i++) eventBooks[i] = books[instrumentIndex(events[i].instrument)];
+        var intervalNanos = TimeUnit.MICROSECONDS.toNanos(config.burstIntervalMicros);
+
+        return () -> {
+            var next = 0;
+            var burstStart = System.nanoTime();
+            while (running) {
+                // without an interval bursts go back to back, and latency is service time
+                var intendedStart = intervalNanos > 0 ? burstStart : System.nanoTime();
+                for (int i = 0; i < config.burstSize; i++) {
+                    eventBooks[next].handleMarketDataEvent(events[next]);
+                    var current = phase.get();
+                    current.writes.record(System.nanoTime() - intendedStart);
+                    if (++next == events.length) next = 0;
+                }
+                if (intervalNanos > 0) {
+                    burstStart += intervalNanos;
+                    waitUntil(burstStart);
+                }
+            }
+        };
+    }
+
+    private Runnable reader(int index) {
+        // seeded apart from the writers, and like them independent of how many readers there are
+        var root = new SplittableRandom(~config.seed);
+        for (int i = 0; i < index; i++) root.split();
+        var random = root.split();
+        var queries = new Query[QUERIES_PER_READER];
+        var queryBooks = new OrderBook[QUERIES_PER_READER];
+        var mix = new ArrayList<Query>();
+        config.queryMix.forEach((name, weight) -> {
+            for (int i = 0; i < weight; i++) mix.add(Query.of(name));
+        });
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = mix.get(random.nextInt(mix.size()));
+            queryBooks[i] = books[random.nextInt(books.length)];
+        }
+        var queryRandom = random.split();
+
+        return () -> {
+            var next = 0;
+            while (running) {
+                var start = System.nanoTime();
+                queries[next].run(queryBooks[next], queryRandom);
+                var current = phase.get();
+                current.reads.record(System.nanoTime() - start);
+                if (++next == queries.length) next = 0;
+            }
+        };
+    }
+
+    private Thread thread(String name, Runnable task) {
+        var thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                running = false;
+            }
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private int instrumentIndex(String instrument) {
+        for (int i = 0; i < books.length; i++) {
+            if (books[i].getInstrument().equals(instrument)) return i;
+        }
+        throw new IllegalArgumentException("Unknown instrument " + instrument);
+    }
+
+    private void waitUntil(long deadline) {
+        for (long remaining; (remaining = deadline - System.nanoTime()) > 0; ) {
+            if (remaining > SPIN_NANOS) LockSupport.parkNanos(remaining - SPIN_NANOS);
+            else Thread.onSpinWait();
+        }
+    }
+
+    private NotificationListener listenToGc() {
+        NotificationListener listener = (notification, handback) -> {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+
+            var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (isPause(info.getGcAction())) phase.get().gcPauses.record(info.getGcInfo().getDuration());
+        };
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+        }
+        return listener;
+    }
+
+    // collectors also report concurrent work, such as the cycles of ZGC and Shenandoah and, since JDK 20, the
+    // concurrent cycles of G1 as "end of concurrent GC pause", which do not stop the application
+    static boolean isPause(String gcAction) {
+        switch (gcAction) {
+            case "end of minor GC":
+            case "end of major GC":
+            case "end of GC pause":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void removeGcListener(NotificationListener listener) {
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) continue;
+
+            try {
+                ((NotificationEmitter) gc).removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                // the collector did not take the listener
+            }
+        }
+    }
+
+    private static void report(Map<String, Long> results) {
+        results.forEach((name, value) -> System.out.printf("%-28s %,15d%n", name, value));
+    }
+
+    // everything measured between two phase switches, the warmup phase is discarded
+    private static final class Phase {
+        final long startNanos = System.nanoTime();
+        final Histogram writes = new Histogram();
+        final Histogram reads = new Histogram();
+        final Histogram gcPauses = new Histogram();
+        final MetricsRecorder metrics = new MetricsRecorder();
+        volatile long endNanos;
+
+        void end() {
+            endNanos = System.nanoTime();
+        }
+
+        Map<String, Long> results() {
+            var seconds = Math.max(endNanos - startNanos, 1) / 1e9;
+            var results = new LinkedHashMap<String, Long>();
+            latencies(results, "write", writes);
+            latencies(results, "read", reads);
+            results.put("writes.per.second", (long) (writes.getCount() / seconds));
+            results.put("reads.per.second", (long) (reads.getCount() / seconds));
+            results.put("book.write.p99.micros", micros(metrics.getLatency(MARKET_DATA_EVENT).getValueAtPercentile(99)));
+            results.put("gc.pauses", gcPauses.getCount());
+            results.put("gc.pause.max.millis", gcPauses.getMax());
+            var casRetries = metrics.getCasRetries();
+            results.put("cas.retries.p99", casRetries.getValueAtPercentile(99));
+            results.put("cas.retries.max", casRetries.getMax());
+            return results;
+        }
+
+        // samples recorded after the end of the phase, by threads finishing their burst, are counted as well
+        private static void latencies(Map<String, Long> results, String name, Histogram histogram) {
+            results.put(name + ".p50.micros", micros(histogram.getValueAtPercentile(50)));
+            results.put(name + ".p99.micros", micros(histogram.getValueAtPercentile(99)));
+            results.put(name + ".p999.micros", micros(histogram.getValueAtPercentile(99.9)));
+            results.put(name + ".max.micros", micros(histogram.getMax()));
+        }
+
+        private static long micros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+
+    // books are created once, their metrics go to the recorder of the current phase
+    private final class PhaseMetrics implements OrderBookMetrics {
+
+        @Override
+        public void onLatency(Operation operation, long nanos) {
+            phase.get().metrics.onLatency(operation, nanos);
+        }
+
+        @Override
+        public void onCasRetries(int retries) {
+            phase.get().metrics.onCasRetries(retries);
+        }
+    }
+}
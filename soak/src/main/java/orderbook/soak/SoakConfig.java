@@ -0,0 +1,111 @@
+package orderbook.soak;
+
+import orderbook.marketdata.MarketData;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a soak run, parsed from {@code --name=value} arguments. Everything that shapes the generated load is
+ * derived from the seed, so two runs with the same arguments drive the books with the same events.
+ */
+final class SoakConfig {
+
+    long seed = 42;
+    int instruments = 4;
+    int sources = 50;
+    int levelsPerSide = 16;
+    // "uniform" or "zipf"
+    String skew = "zipf";
+    int writers = 2;
+    int readers = 2;
+    long durationSeconds = 60;
+    long warmupSeconds = 10;
+    // every writer sends bursts of this many events at the given interval, an interval of 0 sends back to back
+    int burstSize = 10;
+    long burstIntervalMicros = 1_000;
+    // relative weights of the queries readers pick from
+    Map<String, Integer> queryMix = queryMix("top:70,depth:15,vwap:10,orders:5");
+    Path baseline;
+    Path recordBaseline;
+    // headroom of a recorded baseline, 0.5 allows latencies 50% above and throughput 50% below the recorded run
+    double tolerance = 0.5;
+
+    static SoakConfig parse(String[] args) {
+        var config = new SoakConfig();
+        for (var arg : args) {
+            var separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) throw new IllegalArgumentException("Expected --name=value but got " + arg);
+
+            var value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "seed": config.seed = Long.parseLong(value); break;
+                case "instruments": config.instruments = Integer.parseInt(value); break;
+                case "sources": config.sources = Integer.parseInt(value); break;
+                case "levels": config.levelsPerSide = Integer.parseInt(value); break;
+                case "skew": config.skew = value; break;
+                case "writers": config.writers = Integer.parseInt(value); break;
+                case "readers": config.readers = Integer.parseInt(value); break;
+                case "duration": config.durationSeconds = Long.parseLong(value); break;
+                case "warmup": config.warmupSeconds = Long.parseLong(value); break;
+                case "burst": config.burstSize = Integer.parseInt(value); break;
+                case "burstInterval": config.burstIntervalMicros = Long.parseLong(value); break;
+                case "queryMix": config.queryMix = queryMix(value); break;
+                case "baseline": config.baseline = Path.of(value); break;
+                case "recordBaseline": config.recordBaseline = Path.of(value); break;
+                case "tolerance": config.tolerance = Double.parseDouble(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        config.validate();
+        return config;
+    }
+
+    // top:70,depth:15,vwap:10,orders:5
+    private static Map<String, Integer> queryMix(String value) {
+        var mix = new LinkedHashMap<String, Integer>();
+        for (var entry : value.split(",")) {
+            var parts = entry.split(":");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected query:weight but got " + entry);
+            mix.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return mix;
+    }
+
+    private void validate() {
+        if (!(levelsPerSide > 0 && levelsPerSide <= MarketData.MAX_ELEMENTS_PER_SIDE)) throw new IllegalArgumentException(
+                String.format("levels must be between 1 and %s", MarketData.MAX_ELEMENTS_PER_SIDE)
+        );
+        if (!(instruments > 0 && sources > 0 && writers > 0 && burstSize > 0)) throw new IllegalArgumentException(
+                "instruments, sources, writers and burst must be positive"
+        );
+        if (readers < 0 || durationSeconds <= 0 || warmupSeconds < 0 || burstIntervalMicros < 0) throw new IllegalArgumentException(
+                "readers, warmup and burstInterval must not be negative and duration must be positive"
+        );
+        if (!(tolerance >= 0 && tolerance < 1)) throw new IllegalArgumentException("tolerance must be between 0 and 1");
+        if (!skew.equals("uniform") && !skew.equals("zipf")) throw new IllegalArgumentException("Unknown skew " + skew);
+        if (!Query.NAMES.containsAll(queryMix.keySet())) throw new IllegalArgumentException("Queries must be among " + Query.NAMES);
+        if (queryMix.values().stream().anyMatch(weight -> weight < 0) || queryMix.values().stream().mapToInt(weight -> weight).sum() == 0) {
+            throw new IllegalArgumentException("Query weights must not be negative and not all zero");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SoakConfig{" +
+                "seed=" + seed +
+                ", instruments=" + instruments +
+                ", sources=" + sources +
+                ", levelsPerSide=" + levelsPerSide +
+                ", skew='" + skew + '\'' +
+                ", writers=" + writers +
+                ", readers=" + readers +
+                ", durationSeconds=" + durationSeconds +
+                ", warmupSeconds=" + warmupSeconds +
+                ", burstSize=" + burstSize +
+                ", burstIntervalMicros=" + burstIntervalMicros +
+                ", queryMix=" + queryMix +
+                '}';
+    }
+}
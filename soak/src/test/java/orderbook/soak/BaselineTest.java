@@ -0,0 +1,129 @@
+package orderbook.soak;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineTest {
+
+    private final Path baseline;
+
+    BaselineTest() throws IOException {
+        baseline = Files.createTempFile("soak", ".properties");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(baseline);
+    }
+
+    @Test
+    void should_pass__when_results_are_within_thresholds() throws Exception {
+        // given
+        write("write.p99.micros.max=500", "writes.per.second.min=1000");
+
+        // when
+        var regressions = Baseline.regressions(baseline, Map.of("write.p99.micros", 500L, "writes.per.second", 1000L, "read.p99.micros", 9999L));
+
+        // then
+        assertTrue(regressions.isEmpty());
+    }
+
+    @Test
+    void should_report_results_past_thresholds() throws Exception {
+        // given
+        write("write.p99.micros.max=500", "writes.per.second.min=1000");
+
+        // when
+        var regressions = Baseline.regressions(baseline, Map.of("write.p99.micros", 501L, "writes.per.second", 999L));
+
+        // then
+        assertEquals(List.of(
+                "write.p99.micros.max: 501 is above 500",
+                "writes.per.second.min: 999 is below 1000"
+        ), regressions);
+    }
+
+    @Test
+    void should_check_result_named_by_key_without_its_suffix() throws Exception {
+        // given
+        write("write.max.micros.max=10", "reads.per.second.min=5");
+
+        // when
+        var regressions = Baseline.regressions(baseline, Map.of("write.max.micros", 11L, "reads.per.second", 4L));
+
+        // then
+        assertEquals(List.of("reads.per.second.min: 4 is below 5", "write.max.micros.max: 11 is above 10"), regressions);
+    }
+
+    @Test
+    void should_not_accept_key_without_suffix() throws Exception {
+        // given
+        write("write.p99.micros=500");
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> Baseline.regressions(baseline, Map.of("write.p99.micros", 1L)));
+    }
+
+    @Test
+    void should_report_threshold_without_result() throws Exception {
+        // given
+        write("cas.retries.p99.max=2");
+
+        // when / then
+        assertEquals(List.of("cas.retries.p99.max: no such result"), Baseline.regressions(baseline, Map.of()));
+    }
+
+    @Test
+    void should_not_accept_threshold_that_is_not_whole_number() throws Exception {
+        // given
+        write("write.p99.micros.max=fast");
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> Baseline.regressions(baseline, Map.of("write.p99.micros", 1L)));
+    }
+
+    @Test
+    void should_record_thresholds_with_tolerance() throws Exception {
+        // given
+        var results = Map.of("write.p99.micros", 200L, "writes.per.second", 1000L, "gc.pauses", 0L);
+
+        // when
+        Baseline.record(baseline, results, 0.5);
+
+        // then
+        var thresholds = new Properties();
+        try (var reader = Files.newBufferedReader(baseline)) {
+            thresholds.load(reader);
+        }
+        assertEquals(3, thresholds.size());
+        assertEquals("300", thresholds.getProperty("write.p99.micros.max"));
+        assertEquals("500", thresholds.getProperty("writes.per.second.min"));
+        assertEquals("2", thresholds.getProperty("gc.pauses.max"));
+    }
+
+    @Test
+    void should_pass_recorded_baseline__until_results_regress_past_tolerance() throws Exception {
+        // given
+        Baseline.record(baseline, Map.of("read.p999.micros", 40L, "reads.per.second", 2000L), 0.25);
+
+        // when / then
+        assertTrue(Baseline.regressions(baseline, Map.of("read.p999.micros", 40L, "reads.per.second", 2000L)).isEmpty());
+        assertTrue(Baseline.regressions(baseline, Map.of("read.p999.micros", 50L, "reads.per.second", 1500L)).isEmpty());
+        assertEquals(2, Baseline.regressions(baseline, Map.of("read.p999.micros", 51L, "reads.per.second", 1499L)).size());
+    }
+
+    private void write(String... lines) throws IOException {
+        Files.write(baseline, List.of(lines));
+    }
+}
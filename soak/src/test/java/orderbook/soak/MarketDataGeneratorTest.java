@@ -0,0 +1,68 @@
+package orderbook.soak;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.Side;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataGeneratorTest {
+
+    @Test
+    void should_generate_same_events__when_seed_and_stream_are_same() {
+        // given
+        var config = SoakConfig.parse(new String[]{"--seed=7"});
+
+        // when / then
+        assertEquals(
+                new MarketDataGenerator(config, 1).generate(500).toString(),
+                new MarketDataGenerator(config, 1).generate(500).toString()
+        );
+    }
+
+    @Test
+    void should_generate_same_stream__whatever_the_number_of_writers() {
+        // given
+        var twoWriters = SoakConfig.parse(new String[]{"--seed=7", "--writers=2"});
+        var eightWriters = SoakConfig.parse(new String[]{"--seed=7", "--writers=8"});
+
+        // when / then
+        assertEquals(
+                new MarketDataGenerator(twoWriters, 1).generate(500).toString(),
+                new MarketDataGenerator(eightWriters, 1).generate(500).toString()
+        );
+    }
+
+    @Test
+    void should_generate_different_events__for_other_stream_or_seed() {
+        // given
+        var config = SoakConfig.parse(new String[]{"--seed=7"});
+        var events = new MarketDataGenerator(config, 0).generate(100).toString();
+
+        // when / then
+        assertNotEquals(events, new MarketDataGenerator(config, 1).generate(100).toString());
+        assertNotEquals(events, new MarketDataGenerator(SoakConfig.parse(new String[]{"--seed=8"}), 0).generate(100).toString());
+    }
+
+    @Test
+    void should_stay_within_configured_instruments_sources_and_levels() {
+        // given
+        var config = SoakConfig.parse(new String[]{"--instruments=3", "--sources=5", "--levels=" + MarketData.MAX_ELEMENTS_PER_SIDE, "--skew=uniform"});
+
+        // when
+        var events = new MarketDataGenerator(config, 0).generate(2_000);
+
+        // then
+        for (var event : events) {
+            assertTrue(event.instrument.matches("INSTR[0-2]"), event.instrument);
+            assertTrue(event.source.matches("SOURCE[0-4]"), event.source);
+            for (var side : Side.values()) {
+                var levels = event.priceList.stream().filter(level -> level.side == side).count();
+                assertTrue(levels >= 1 && levels <= MarketData.MAX_ELEMENTS_PER_SIDE);
+            }
+        }
+        assertTrue(events.stream().anyMatch(event -> event.priceList.stream().filter(level -> level.side == Side.BUY).count() == MarketData.MAX_ELEMENTS_PER_SIDE));
+    }
+}
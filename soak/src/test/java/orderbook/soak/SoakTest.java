@@ -0,0 +1,19 @@
+package orderbook.soak;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoakTest {
+
+    @Test
+    void should_count_only_stop_the_world_collections_as_pauses() {
+        // when / then
+        assertTrue(Soak.isPause("end of minor GC"));
+        assertTrue(Soak.isPause("end of major GC"));
+        assertTrue(Soak.isPause("end of GC pause"));
+        assertFalse(Soak.isPause("end of concurrent GC pause"));
+        assertFalse(Soak.isPause("end of GC cycle"));
+    }
+}
@@ -0,0 +1,120 @@
+package orderbook;
+
+import orderbook.marketdata.LevelUpdate;
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+final class MarketDataFixture {
+
+    static final String INSTRUMENT = "EURUSD";
+    static final int PRICE_SCALE = 5;
+    static final long MID_PRICE = 110_000;
+    static final long[] QUANTITIES = {1_000_000, 2_000_000, 3_000_000, 5_000_000, 10_000_000};
+
+    private MarketDataFixture() {
+    }
+
+    static String source(int index) {
+        return String.format("participant%03d", index);
+    }
+
+    static MarketData marketData(Random random, String source, int levelsPerSide) {
+        var priceList = new ArrayList<PriceLevel>(levelsPerSide * 2);
+        for (int level = 0; level < levelsPerSide; level++) {
+            priceList.add(priceLevel(random, level, BUY));
+            priceList.add(priceLevel(random, level, SELL));
+        }
+        return new MarketData(source, INSTRUMENT, priceList);
+    }
+
+    static List<MarketData> snapshots(Random random, int sources, int levelsPerSide) {
+        var snapshots = new ArrayList<MarketData>(sources);
+        for (int i = 0; i < sources; i++) {
+            snapshots.add(marketData(random, source(i), levelsPerSide));
+        }
+        return snapshots;
+    }
+
+    static MarketData[] updates(Random random, int sources, int levelsPerSide, String skew, int count) {
+        var sourceIndices = sourceSequence(random, sources, skew, count);
+        var updates = new MarketData[count];
+        for (int i = 0; i < count; i++) {
+            updates[i] = marketData(random, source(sourceIndices[i]), levelsPerSide);
+        }
+        return updates;
+    }
+
+    static BigDecimal price(long ticks) {
+        return BigDecimal.valueOf(ticks, PRICE_SCALE);
+    }
+
+    static OrderBook newBook(String prices) {
+        switch (prices) {
+            case "decimal":
+                return new OrderBook(INSTRUMENT);
+            case "scaled":
+                return new OrderBook(INSTRUMENT, PriceScale.of(PRICE_SCALE));
+            default:
+                throw new IllegalArgumentException("Unknown price mode " + prices);
+        }
+    }
+
+    static OrderBook filledBook(Random random, String prices, int sources, int levelsPerSide) {
+        var orderBook = newBook(prices);
+        snapshots(random, sources, levelsPerSide).forEach(orderBook::handleMarketDataEvent);
+        return orderBook;
+    }
+
+    // quantity changes of levels quoted in the book, which stay valid however often they are applied
+    static LevelUpdate[] levelUpdates(Random random, OrderBook orderBook, int count) {
+        var orders = orderBook.getOrdersBySide(BUY);
+        var levelUpdates = new LevelUpdate[count];
+        for (int i = 0; i < count; i++) {
+            var order = orders.get(random.nextInt(orders.size()));
+            var quantity = QUANTITIES[random.nextInt(QUANTITIES.length)];
+            levelUpdates[i] = new LevelUpdate(order.source, INSTRUMENT, LevelUpdate.Action.MODIFY, BUY, order.priceLevel.price, quantity);
+        }
+        return levelUpdates;
+    }
+
+    // "uniform" picks every source with the same probability, "zipf" concentrates updates on a few hot sources
+    static int[] sourceSequence(Random random, int sources, String skew, int count) {
+        var sequence = new int[count];
+        switch (skew) {
+            case "uniform":
+                for (int i = 0; i < count; i++) sequence[i] = random.nextInt(sources);
+                break;
+            case "zipf":
+                var cumulative = new double[sources];
+                var total = 0d;
+                for (int i = 0; i < sources; i++) {
+                    total += 1d / (i + 1);
+                    cumulative[i] = total;
+                }
+                for (int i = 0; i < count; i++) {
+                    var index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                    sequence[i] = Math.min(index < 0 ? -index - 1 : index, sources - 1);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown skew " + skew);
+        }
+        return sequence;
+    }
+
+    private static PriceLevel priceLevel(Random random, int level, Side side) {
+        var distance = level + 1 + random.nextInt(3);
+        var ticks = side == BUY ? MID_PRICE - distance : MID_PRICE + distance;
+        return new PriceLevel(price(ticks), QUANTITIES[random.nextInt(QUANTITIES.length)], side);
+    }
+}
@@ -0,0 +1,96 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static orderbook.MarketDataFixture.MID_PRICE;
+import static orderbook.MarketDataFixture.QUANTITIES;
+import static orderbook.MarketDataFixture.filledBook;
+import static orderbook.MarketDataFixture.price;
+import static orderbook.MarketDataFixture.updates;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+// Writer and reader thread counts are set per run with -tg <writers>,<readers>, e.g. -tg 4,12
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderBookContentionBenchmark {
+
+    private static final int UPDATES = 1024;
+
+    @Param({"decimal", "scaled"})
+    String prices;
+
+    @Param({"10", "100", "500"})
+    int sources;
+
+    @Param({"16", "64"})
+    int levelsPerSide;
+
+    @Param({"uniform", "zipf"})
+    String skew;
+
+    private final AtomicInteger writerSeeds = new AtomicInteger();
+
+    private OrderBook orderBook;
+    private BigDecimal bestOffer;
+
+    @Setup
+    public void setUp() {
+        orderBook = filledBook(new Random(42), prices, sources, levelsPerSide);
+        bestOffer = price(MID_PRICE + 1);
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private MarketData[] updates;
+        private int next;
+
+        @Setup
+        public void setUp(OrderBookContentionBenchmark benchmark) {
+            var random = new Random(benchmark.writerSeeds.incrementAndGet());
+            updates = updates(random, benchmark.sources, benchmark.levelsPerSide, benchmark.skew, UPDATES);
+        }
+
+        MarketData next() {
+            return updates[next++ & (UPDATES - 1)];
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void write(Writer writer) {
+        orderBook.handleMarketDataEvent(writer.next());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public long read() {
+        return orderBook.getTotalQuantityForPriceAndSide(bestOffer, SELL)
+                + orderBook.getOrdersBySide(BUY).size()
+                + orderBook.getVwapForQuantityAndSide(QUANTITIES[0], BUY).signum();
+    }
+}
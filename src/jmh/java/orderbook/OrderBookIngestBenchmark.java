@@ -0,0 +1,89 @@
+package orderbook;
+
+import orderbook.marketdata.LevelUpdate;
+import orderbook.marketdata.MarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static orderbook.MarketDataFixture.filledBook;
+import static orderbook.MarketDataFixture.levelUpdates;
+import static orderbook.MarketDataFixture.newBook;
+import static orderbook.MarketDataFixture.snapshots;
+import static orderbook.MarketDataFixture.updates;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderBookIngestBenchmark {
+
+    private static final int UPDATES = 1024;
+
+    @Param({"decimal", "scaled"})
+    String prices;
+
+    @Param({"1", "10", "100", "500"})
+    int sources;
+
+    @Param({"1", "16", "64"})
+    int levelsPerSide;
+
+    @Param({"uniform", "zipf"})
+    String skew;
+
+    private OrderBook orderBook;
+    private MarketData[] updates;
+    private List<MarketData> snapshots;
+    private LevelUpdate[] levelUpdates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        orderBook = filledBook(random, prices, sources, levelsPerSide);
+        updates = updates(random, sources, levelsPerSide, skew, UPDATES);
+        snapshots = snapshots(random, sources, levelsPerSide);
+        levelUpdates = levelUpdates(random, orderBook, UPDATES);
+    }
+
+    @Benchmark
+    public OrderBook handleMarketDataEvent() {
+        orderBook.handleMarketDataEvent(updates[next++ & (UPDATES - 1)]);
+        return orderBook;
+    }
+
+    @Benchmark
+    public OrderBook handleLevelUpdate() {
+        orderBook.handleLevelUpdate(levelUpdates[next++ & (UPDATES - 1)]);
+        return orderBook;
+    }
+
+    @Benchmark
+    public OrderBook replaySnapshotsOneByOne() {
+        var replayed = newBook(prices);
+        snapshots.forEach(replayed::handleMarketDataEvent);
+        return replayed;
+    }
+
+    @Benchmark
+    public OrderBook replaySnapshotsAsBatch() {
+        var replayed = newBook(prices);
+        replayed.handleMarketDataBatch(snapshots);
+        return replayed;
+    }
+}
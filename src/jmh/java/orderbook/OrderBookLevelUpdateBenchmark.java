@@ -0,0 +1,93 @@
+package orderbook;
+
+import orderbook.marketdata.LevelUpdate;
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static orderbook.MarketDataFixture.INSTRUMENT;
+import static orderbook.MarketDataFixture.QUANTITIES;
+import static orderbook.MarketDataFixture.newBook;
+import static orderbook.MarketDataFixture.snapshots;
+import static orderbook.marketdata.Side.BUY;
+
+/**
+ * The same change applied as a {@link LevelUpdate} and as the full {@link MarketData} event a feed without level
+ * updates would send for it: the source's previous snapshot with the quantity of one bid level changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderBookLevelUpdateBenchmark {
+
+    private static final int UPDATES = 1024;
+
+    @Param({"decimal", "scaled"})
+    String prices;
+
+    @Param({"10", "100", "500"})
+    int sources;
+
+    @Param({"16", "64"})
+    int levelsPerSide;
+
+    private OrderBook orderBook;
+    private LevelUpdate[] levelUpdates;
+    private MarketData[] equivalentEvents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        var snapshots = snapshots(random, sources, levelsPerSide);
+        orderBook = newBook(prices);
+        snapshots.forEach(orderBook::handleMarketDataEvent);
+
+        levelUpdates = new LevelUpdate[UPDATES];
+        equivalentEvents = new MarketData[UPDATES];
+        for (int i = 0; i < UPDATES; i++) {
+            var snapshot = snapshots.get(random.nextInt(sources));
+            var bids = snapshot.priceList.stream().filter(level -> level.side == BUY).toArray(PriceLevel[]::new);
+            var price = bids[random.nextInt(bids.length)].price;
+            var quantity = QUANTITIES[random.nextInt(QUANTITIES.length)];
+            levelUpdates[i] = new LevelUpdate(snapshot.source, INSTRUMENT, LevelUpdate.Action.MODIFY, BUY, price, quantity);
+
+            // a modify replaces every level of the source at the price with one
+            var priceList = new ArrayList<PriceLevel>();
+            snapshot.priceList.stream()
+                    .filter(level -> level.side != BUY || level.price.compareTo(price) != 0)
+                    .forEach(priceList::add);
+            priceList.add(new PriceLevel(price, quantity, BUY));
+            equivalentEvents[i] = new MarketData(snapshot.source, INSTRUMENT, priceList);
+        }
+    }
+
+    @Benchmark
+    public OrderBook levelUpdate() {
+        orderBook.handleLevelUpdate(levelUpdates[next++ & (UPDATES - 1)]);
+        return orderBook;
+    }
+
+    @Benchmark
+    public OrderBook equivalentMarketDataEvent() {
+        orderBook.handleMarketDataEvent(equivalentEvents[next++ & (UPDATES - 1)]);
+        return orderBook;
+    }
+}
@@ -0,0 +1,82 @@
+package orderbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static orderbook.MarketDataFixture.MID_PRICE;
+import static orderbook.MarketDataFixture.QUANTITIES;
+import static orderbook.MarketDataFixture.filledBook;
+import static orderbook.MarketDataFixture.price;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderBookQueryBenchmark {
+
+    @Param({"decimal", "scaled"})
+    String prices;
+
+    @Param({"1", "10", "100", "500"})
+    int sources;
+
+    @Param({"1", "16", "64"})
+    int levelsPerSide;
+
+    private OrderBook orderBook;
+    private BigDecimal bestBid;
+    private long quantity;
+    private long sweepQuantity;
+
+    @Setup
+    public void setUp() {
+        orderBook = filledBook(new Random(42), prices, sources, levelsPerSide);
+        bestBid = price(MID_PRICE - 1);
+        quantity = QUANTITIES[0];
+        sweepQuantity = orderBook.getDepthBySide(BUY, Integer.MAX_VALUE).stream().mapToLong(level -> level.quantity).sum() / 2;
+    }
+
+    @Benchmark
+    public List<Order> getOrdersBySide() {
+        return orderBook.getOrdersBySide(SELL);
+    }
+
+    @Benchmark
+    public long getTotalQuantityForPriceAndSide() {
+        return orderBook.getTotalQuantityForPriceAndSide(bestBid, BUY);
+    }
+
+    @Benchmark
+    public List<DepthLevel> getDepthBySide() {
+        return orderBook.getDepthBySide(BUY, 5);
+    }
+
+    @Benchmark
+    public BigDecimal getVwapForQuantityAndSide() {
+        return orderBook.getVwapForQuantityAndSide(quantity, BUY);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> getSweepVwapForQuantityAndSide() {
+        return orderBook.getSweepVwapForQuantityAndSide(sweepQuantity, BUY);
+    }
+}
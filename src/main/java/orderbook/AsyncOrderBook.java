@@ -0,0 +1,255 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+import static orderbook.Subscription.Mode.FULL_DEPTH;
+
+/**
+ * Non-blocking facade over an {@link OrderBook} for many concurrent consumers. Queries complete futures on the given
+ * executor, and streams are {@link Flow.Publisher}s that honour demand by coalescing: a subscriber that is behind
+ * receives the state of the latest snapshot once it requests more, never a backlog of intermediate ones.
+ * <p>
+ * Nothing here blocks a thread, so the executor may be a virtual thread per task executor where one is available, or
+ * any pool otherwise. All streams share a single {@link Subscription} to the book, which is opened with the first
+ * subscriber and closed, with its dispatcher thread, once the last stream is cancelled or completed, or with this
+ * facade.
+ */
+public class AsyncOrderBook implements AutoCloseable {
+
+    private final OrderBook orderBook;
+    private final Executor executor;
+    private final Set<Stream<?>> streams = ConcurrentHashMap.newKeySet();
+    private Subscription subscription;
+    private boolean closed;
+
+    public AsyncOrderBook(OrderBook orderBook, Executor executor) {
+        this.orderBook = requireNonNull(orderBook, "orderBook");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    public CompletableFuture<List<Order>> getOrdersBySide(Side side) {
+        return CompletableFuture.supplyAsync(() -> orderBook.getOrdersBySide(side), executor);
+    }
+
+    public CompletableFuture<Long> getTotalQuantityForPriceAndSide(BigDecimal price, Side side) {
+        return CompletableFuture.supplyAsync(() -> orderBook.getTotalQuantityForPriceAndSide(price, side), executor);
+    }
+
+    public CompletableFuture<List<DepthLevel>> getDepthBySide(Side side, int levels) {
+        return CompletableFuture.supplyAsync(() -> orderBook.getDepthBySide(side, levels), executor);
+    }
+
+    public CompletableFuture<BigDecimal> getVwapForQuantityAndSide(long quantity, Side side) {
+        return CompletableFuture.supplyAsync(() -> orderBook.getVwapForQuantityAndSide(quantity, side), executor);
+    }
+
+    public CompletableFuture<Optional<BigDecimal>> getSweepVwapForQuantityAndSide(long quantity, Side side) {
+        return CompletableFuture.supplyAsync(() -> orderBook.getSweepVwapForQuantityAndSide(quantity, side), executor);
+    }
+
+    /**
+     * Top of book of the current snapshot on subscription, then of the latest snapshot whenever the top changed and
+     * the subscriber has demand.
+     */
+    public Flow.Publisher<TopOfBook> topOfBook() {
+        return publisher(true, book -> book.topOfBook);
+    }
+
+    /**
+     * Best levels of the side of the current snapshot on subscription, then of the latest snapshot whenever the book
+     * changed and the subscriber has demand.
+     */
+    public Flow.Publisher<List<DepthLevel>> depth(Side side, int levels) {
+        if (levels < 0) throw new IllegalArgumentException("levels must not be negative");
+
+        requireNonNull(side, "side");
+        return publisher(false, book -> {
+            var depth = book.side(side).depth.levels();
+            return depth.size() <= levels ? depth : depth.subList(0, levels);
+        });
+    }
+
+    /**
+     * Completes every stream and closes the subscription to the book.
+     */
+    @Override
+    public void close() {
+        Subscription toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = subscription;
+            subscription = null;
+        }
+        if (toClose != null) toClose.close();
+        streams.forEach(Stream::complete);
+    }
+
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    // a view that throws fails the stream with its exception
+    <T> Flow.Publisher<T> publisher(boolean topOfBookOnly, Function<Book, T> view) {
+        return subscriber -> subscribe(subscriber, topOfBookOnly, view);
+    }
+
+    private <T> void subscribe(Flow.Subscriber<? super T> subscriber, boolean topOfBookOnly, Function<Book, T> view) {
+        requireNonNull(subscriber, "subscriber");
+
+        var stream = new Stream<>(subscriber, topOfBookOnly, view);
+        boolean open;
+        synchronized (this) {
+            // subscribed before the stream reads its first snapshot, so no later version can be missed
+            if (!closed && subscription == null) subscription = orderBook.subscribe(new Fanout(), FULL_DEPTH);
+            open = !closed;
+            if (open) streams.add(stream);
+        }
+
+        subscriber.onSubscribe(stream);
+        if (!open) stream.complete();
+    }
+
+    private void remove(Stream<?> stream) {
+        Subscription toClose = null;
+        synchronized (this) {
+            if (streams.remove(stream) && streams.isEmpty()) {
+                toClose = subscription;
+                subscription = null;
+            }
+        }
+        if (toClose != null) toClose.close();
+    }
+
+    synchronized boolean isSubscribed() {
+        return subscription != null;
+    }
+
+    private final class Fanout implements BookListener {
+
+        @Override
+        public void onBookChange(BookDelta delta) {
+            for (var stream : streams) {
+                if (delta.topOfBookChanged || !stream.topOfBookOnly) stream.signal();
+            }
+        }
+
+        @Override
+        public void onDeltasLost(TopOfBook topOfBook) {
+            streams.forEach(Stream::signal);
+        }
+    }
+
+    // drains run on the executor one at a time per stream, and always read the latest snapshot
+    private final class Stream<T> implements Flow.Subscription {
+        final Flow.Subscriber<? super T> subscriber;
+        final boolean topOfBookOnly;
+        final Function<Book, T> view;
+        final AtomicLong demand = new AtomicLong();
+        final AtomicInteger pendingDrains = new AtomicInteger();
+        // drain only
+        long deliveredVersion = -1;
+        volatile boolean changed = true;
+        volatile boolean completed;
+        volatile boolean cancelled;
+        volatile Throwable error;
+
+        Stream(Flow.Subscriber<? super T> subscriber, boolean topOfBookOnly, Function<Book, T> view) {
+            this.subscriber = subscriber;
+            this.topOfBookOnly = topOfBookOnly;
+            this.view = view;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " items, only positive demand is allowed");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+        }
+
+        void signal() {
+            changed = true;
+            drain();
+        }
+
+        void complete() {
+            completed = true;
+            drain();
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() != 0) return;
+
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+
+        private void run() {
+            var missed = 1;
+            do {
+                try {
+                    emit();
+                } catch (RuntimeException e) {
+                    // thrown by the subscriber, which must not throw, so there is nobody left to tell
+                    cancel();
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            if (cancelled) return;
+
+            if (error != null) {
+                cancel();
+                subscriber.onError(error);
+            } else if (completed) {
+                cancel();
+                subscriber.onComplete();
+            } else if (changed && demand.get() > 0) {
+                changed = false;
+                var book = orderBook.snapshot();
+                if (book.version == deliveredVersion) return;
+
+                T item;
+                try {
+                    item = view.apply(book);
+                } catch (RuntimeException e) {
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+
+                deliveredVersion = book.version;
+                if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                subscriber.onNext(item);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.util.List;
+import java.util.Map;
+
+import static orderbook.OrderBook.TOP_OF_BOOK_LEVELS;
+import static orderbook.marketdata.Side.BUY;
+
+/**
+ * Immutable snapshot of both sides of the book, published by {@link OrderBook} as a single reference. Every snapshot
+ * derived from another one carries the next version.
+ */
+final class Book {
+
+    final SideBook bids;
+    final SideBook offers;
+    final long version;
+    final TopOfBook topOfBook;
+
+    Book(SideBook bids, SideBook offers, long version) {
+        this.bids = bids;
+        this.offers = offers;
+        this.version = version;
+        this.topOfBook = new TopOfBook(version, top(bids), top(offers));
+    }
+
+    SideBook side(Side side) {
+        return side == BUY ? bids : offers;
+    }
+
+    Book withSource(int sourceId, List<Order> bidRun, List<Order> offerRun) {
+        var updatedBids = bids.withRun(sourceId, bidRun);
+        var updatedOffers = offers.withRun(sourceId, offerRun);
+        if (updatedBids == bids && updatedOffers == offers) return this;
+
+        return new Book(updatedBids, updatedOffers, version + 1);
+    }
+
+    Book withSources(Map<Integer, List<Order>> bidRuns, Map<Integer, List<Order>> offerRuns) {
+        var updatedBids = bids.withRuns(bidRuns);
+        var updatedOffers = offers.withRuns(offerRuns);
+        if (updatedBids == bids && updatedOffers == offers) return this;
+
+        return new Book(updatedBids, updatedOffers, version + 1);
+    }
+
+    Book withSide(SideBook sideBook) {
+        return sideBook.side == BUY ? new Book(sideBook, offers, version + 1) : new Book(bids, sideBook, version + 1);
+    }
+
+    Book withVersion(long version) {
+        return new Book(bids, offers, version);
+    }
+
+    // the sides of the given empty book, published as the next version of this one
+    Book cleared(Book emptyBook) {
+        return new Book(emptyBook.bids, emptyBook.offers, version + 1);
+    }
+
+    private static List<DepthLevel> top(SideBook sideBook) {
+        var levels = sideBook.depth.levels();
+        return List.copyOf(levels.size() <= TOP_OF_BOOK_LEVELS ? levels : levels.subList(0, TOP_OF_BOOK_LEVELS));
+    }
+}
@@ -0,0 +1,42 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.util.List;
+
+import static orderbook.marketdata.Side.BUY;
+
+/**
+ * Levels changed by one publication of an {@link OrderBook}, best price first, together with the top of book of the
+ * version it produced.
+ */
+public class BookDelta {
+
+    public final long version;
+    public final List<LevelChange> bidChanges;
+    public final List<LevelChange> offerChanges;
+    public final boolean topOfBookChanged;
+    public final TopOfBook topOfBook;
+
+    BookDelta(long version, List<LevelChange> bidChanges, List<LevelChange> offerChanges, boolean topOfBookChanged, TopOfBook topOfBook) {
+        this.version = version;
+        this.bidChanges = bidChanges;
+        this.offerChanges = offerChanges;
+        this.topOfBookChanged = topOfBookChanged;
+        this.topOfBook = topOfBook;
+    }
+
+    public List<LevelChange> changes(Side side) {
+        return side == BUY ? bidChanges : offerChanges;
+    }
+
+    @Override
+    public String toString() {
+        return "BookDelta{" +
+                "version=" + version +
+                ", bidChanges=" + bidChanges +
+                ", offerChanges=" + offerChanges +
+                ", topOfBookChanged=" + topOfBookChanged +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package orderbook;
+
+/**
+ * Receives the changes of an {@link OrderBook} it subscribed to, on the dispatcher thread of its {@link Subscription}
+ * and in version order.
+ */
+@FunctionalInterface
+public interface BookListener {
+
+    void onBookChange(BookDelta delta);
+
+    /**
+     * Called instead of the deltas this listener fell too far behind to read. Deltas continue after the version of
+     * the given top of book, anything deeper has to be read from the book again.
+     */
+    default void onDeltasLost(TopOfBook topOfBook) {
+    }
+}
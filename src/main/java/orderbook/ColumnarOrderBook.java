@@ -0,0 +1,345 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.math.BigDecimal.ZERO;
+import static java.util.Objects.requireNonNull;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Order book for very deep books with many sources. Each side is kept in book order as off-heap columns of scaled
+ * price, quantity and interned source id, 20 bytes a row instead of an {@link Order}, {@link PriceLevel} and
+ * {@link BigDecimal} graph, so scans walk contiguous memory and the heap holds little more than the source strings.
+ * <p>
+ * Writers are serialized by a {@link StampedLock} and queries read optimistically. {@link #getOrdersBySide(Side)}
+ * copies the rows of the side and materializes an {@link Order} only when its element is read.
+ */
+public class ColumnarOrderBook {
+
+    private static final int INITIAL_ROWS = 256;
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private final String instrument;
+    private final PriceScale priceScale;
+    private final SourceRegistry sources = new SourceRegistry();
+    private final Columns bids = new Columns(BUY);
+    private final Columns offers = new Columns(SELL);
+    private final StampedLock lock = new StampedLock();
+
+    public ColumnarOrderBook(String instrument, PriceScale priceScale) {
+        this.instrument = requireNonNull(instrument, "instrument");
+        this.priceScale = requireNonNull(priceScale, "priceScale");
+    }
+
+    public String getInstrument() {
+        return instrument;
+    }
+
+    public void handleMarketDataEvent(MarketData marketData) {
+        validate(marketData);
+
+        var bidRun = new Run(marketData, BUY, priceScale);
+        var offerRun = new Run(marketData, SELL, priceScale);
+
+        var stamp = lock.writeLock();
+        try {
+            var sourceId = sources.idOf(marketData.source);
+            bids.replace(sourceId, bidRun);
+            offers.replace(sourceId, offerRun);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void reset() {
+        var stamp = lock.writeLock();
+        try {
+            bids.count = 0;
+            offers.count = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public List<Order> getOrdersBySide(Side side) {
+        var stamp = lock.readLock();
+        try {
+            return columns(side).snapshot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getTotalQuantityForPriceAndSide(BigDecimal price, Side side) {
+        var scaledPrice = priceScale.scaledPriceOrUnrepresentable(price);
+        return readLong(() -> columns(side).quantityAt(scaledPrice));
+    }
+
+    public BigDecimal getVwapForQuantityAndSide(long quantity, Side side) {
+        return read(() -> columns(side).vwap(quantity));
+    }
+
+    private Columns columns(Side side) {
+        return side == BUY ? bids : offers;
+    }
+
+    // optimistic reads can observe a half written event, which fails validation and is read again
+    private long readLong(LongSupplier reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            var stamp = lock.tryOptimisticRead();
+            if (stamp == 0) continue;
+
+            try {
+                var result = reader.getAsLong();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+
+        var stamp = lock.readLock();
+        try {
+            return reader.getAsLong();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            var stamp = lock.tryOptimisticRead();
+            if (stamp == 0) continue;
+
+            try {
+                var result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+
+        var stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void validate(MarketData marketData) {
+        if (!instrument.equals(marketData.instrument)) throw new IllegalArgumentException(
+                String.format("Incorrect instrument, %s required, but %s provided", instrument, marketData.instrument)
+        );
+    }
+
+    // levels of one event on one side, sorted in book order
+    private static final class Run {
+        final long[] prices;
+        final long[] quantities;
+        int count;
+
+        Run(MarketData marketData, Side side, PriceScale priceScale) {
+            prices = new long[marketData.priceList.size()];
+            quantities = new long[marketData.priceList.size()];
+            for (var priceLevel : marketData.priceList) {
+                if (priceLevel.side != side) continue;
+
+                var price = priceScale.toScaledPrice(priceLevel.price);
+                var row = count++;
+                while (row > 0 && before(side, price, priceLevel.quantity, prices[row - 1], quantities[row - 1])) {
+                    prices[row] = prices[row - 1];
+                    quantities[row] = quantities[row - 1];
+                    row--;
+                }
+                prices[row] = price;
+                quantities[row] = priceLevel.quantity;
+            }
+        }
+    }
+
+    private static boolean before(Side side, long price, long quantity, long otherPrice, long otherQuantity) {
+        if (price != otherPrice) return side == BUY ? price > otherPrice : price < otherPrice;
+        return quantity > otherQuantity;
+    }
+
+    /**
+     * One side as a single direct buffer holding {@code capacity} prices, then {@code capacity} quantities, then
+     * {@code capacity} source ids. Rows are in book order: best price first, then larger quantity, then source.
+     */
+    private final class Columns {
+        final Side side;
+        ByteBuffer rows;
+        int capacity;
+        int count;
+
+        Columns(Side side) {
+            this.side = side;
+            this.capacity = INITIAL_ROWS;
+            this.rows = allocate(INITIAL_ROWS);
+        }
+
+        long price(ByteBuffer rows, int row) {
+            return rows.getLong(row * Long.BYTES);
+        }
+
+        long quantity(ByteBuffer rows, int capacity, int row) {
+            return rows.getLong((capacity + row) * Long.BYTES);
+        }
+
+        int sourceId(ByteBuffer rows, int capacity, int row) {
+            return rows.getInt(capacity * 2 * Long.BYTES + row * Integer.BYTES);
+        }
+
+        void set(int row, long price, long quantity, int sourceId) {
+            rows.putLong(row * Long.BYTES, price);
+            rows.putLong((capacity + row) * Long.BYTES, quantity);
+            rows.putInt(capacity * 2 * Long.BYTES + row * Integer.BYTES, sourceId);
+        }
+
+        void replace(int sourceId, Run run) {
+            var kept = 0;
+            for (int row = 0; row < count; row++) {
+                var rowSourceId = sourceId(rows, capacity, row);
+                if (rowSourceId == sourceId) continue;
+
+                if (kept != row) set(kept, price(rows, row), quantity(rows, capacity, row), rowSourceId);
+                kept++;
+            }
+            ensureCapacity(kept + run.count);
+
+            // merge the new run in from the back, so no kept row is overwritten before it is moved
+            var row = kept - 1;
+            var newRow = run.count - 1;
+            for (int target = kept + run.count - 1; newRow >= 0; target--) {
+                if (row >= 0 && after(price(rows, row), quantity(rows, capacity, row), sourceId(rows, capacity, row), run.prices[newRow], run.quantities[newRow], sourceId)) {
+                    set(target, price(rows, row), quantity(rows, capacity, row), sourceId(rows, capacity, row));
+                    row--;
+                } else {
+                    set(target, run.prices[newRow], run.quantities[newRow], sourceId);
+                    newRow--;
+                }
+            }
+            count = kept + run.count;
+        }
+
+        private boolean after(long price, long quantity, int sourceId, long otherPrice, long otherQuantity, int otherSourceId) {
+            if (price != otherPrice || quantity != otherQuantity) return before(side, otherPrice, otherQuantity, price, quantity);
+            return sources.compare(sourceId, otherSourceId) > 0;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= capacity) return;
+
+            var newCapacity = Math.max(capacity * 2, required);
+            var newRows = allocate(newCapacity);
+            for (int row = 0; row < count; row++) {
+                newRows.putLong(row * Long.BYTES, price(rows, row));
+                newRows.putLong((newCapacity + row) * Long.BYTES, quantity(rows, capacity, row));
+                newRows.putInt(newCapacity * 2 * Long.BYTES + row * Integer.BYTES, sourceId(rows, capacity, row));
+            }
+            rows = newRows;
+            capacity = newCapacity;
+        }
+
+        long quantityAt(long scaledPrice) {
+            var rows = this.rows;
+            var capacity = this.capacity;
+            var count = this.count;
+
+            // rows are sorted by price, so the rows at the price follow the last row with a better price
+            var low = 0;
+            var high = count;
+            while (low < high) {
+                var middle = (low + high) >>> 1;
+                if (side == BUY ? price(rows, middle) > scaledPrice : price(rows, middle) < scaledPrice) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            var total = 0L;
+            for (int row = low; row < count && price(rows, row) == scaledPrice; row++) {
+                total += quantity(rows, capacity, row);
+            }
+            return total;
+        }
+
+        BigDecimal vwap(long quantity) {
+            var rows = this.rows;
+            var capacity = this.capacity;
+            var count = this.count;
+
+            var matched = 0L;
+            var notional = Notional.ZERO;
+            for (int row = 0; row < count; row++) {
+                if (quantity(rows, capacity, row) != quantity) continue;
+
+                matched++;
+                notional = notional.plus(price(rows, row), quantity);
+            }
+
+            if (matched == 0) return ZERO;
+
+            return notional.toBigDecimal(priceScale.scale())
+                    .divide(BigDecimal.valueOf(Math.multiplyExact(quantity, matched)), RoundingMode.HALF_EVEN);
+        }
+
+        List<Order> snapshot() {
+            var prices = new long[count];
+            var quantities = new long[count];
+            var sourceIds = new int[count];
+            for (int row = 0; row < count; row++) {
+                prices[row] = price(rows, row);
+                quantities[row] = quantity(rows, capacity, row);
+                sourceIds[row] = sourceId(rows, capacity, row);
+            }
+            return new OrdersView(side, prices, quantities, sourceIds, sources.sources());
+        }
+
+        private ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * (2 * Long.BYTES + Integer.BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private final class OrdersView extends AbstractList<Order> implements RandomAccess {
+        private final Side side;
+        private final long[] prices;
+        private final long[] quantities;
+        private final int[] sourceIds;
+        private final String[] sourceNames;
+
+        OrdersView(Side side, long[] prices, long[] quantities, int[] sourceIds, String[] sourceNames) {
+            this.side = side;
+            this.prices = prices;
+            this.quantities = quantities;
+            this.sourceIds = sourceIds;
+            this.sourceNames = sourceNames;
+        }
+
+        @Override
+        public Order get(int index) {
+            var priceLevel = new PriceLevel(priceScale.toPrice(prices[index]), quantities[index], side);
+            return new Order(sourceNames[sourceIds[index]], sourceIds[index], priceLevel, prices[index]);
+        }
+
+        @Override
+        public int size() {
+            return prices.length;
+        }
+    }
+}
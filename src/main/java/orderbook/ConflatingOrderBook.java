@@ -0,0 +1,174 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Ingress that keeps at most one pending {@link MarketData} per source. Every event fully replaces the levels of its
+ * source, so an event still waiting when a newer one of the same source arrives is conflated away. An applier
+ * thread takes everything pending and publishes it as one batch, so under bursts the work done per publication is
+ * bounded by the number of distinct sources rather than the message rate.
+ * <p>
+ * The wrapped book must not be written to by anything else while this ingress is open.
+ */
+public class ConflatingOrderBook implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final OrderBook orderBook;
+    private final int maxPendingSources;
+    private final ConcurrentHashMap<String, MarketData> pendingBySource = new ConcurrentHashMap<>();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    // reserved before a source is added, so concurrent producers cannot push past maxPendingSources
+    private final AtomicInteger pendingSources = new AtomicInteger();
+    private final AtomicInteger offersInFlight = new AtomicInteger();
+    private final Thread applier;
+    private volatile boolean applierParked;
+    private volatile boolean closed;
+    // set once no offer is in flight any more, the applier stops after draining what is pending then
+    private volatile boolean stopped;
+
+    public ConflatingOrderBook(OrderBook orderBook, int maxPendingSources) {
+        this(orderBook, maxPendingSources, runnable -> {
+            var thread = new Thread(runnable, "orderbook-conflator-" + orderBook.getInstrument());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ConflatingOrderBook(OrderBook orderBook, int maxPendingSources, ThreadFactory threadFactory) {
+        if (!(maxPendingSources > 0)) throw new IllegalArgumentException("maxPendingSources must be positive");
+
+        this.orderBook = requireNonNull(orderBook, "orderBook");
+        this.maxPendingSources = maxPendingSources;
+        this.applier = threadFactory.newThread(this::applyLoop);
+        this.applier.start();
+    }
+
+    public OrderBook orderBook() {
+        return orderBook;
+    }
+
+    /**
+     * Queues the event, replacing any pending event of the same source. Returns {@code false} when the event is
+     * dropped because {@code maxPendingSources} other sources are already pending.
+     */
+    public boolean offer(MarketData marketData) {
+        offersInFlight.incrementAndGet();
+        try {
+            if (closed) throw new IllegalStateException("Closed");
+            orderBook.validate(marketData);
+
+            if (!put(marketData)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } finally {
+            offersInFlight.decrementAndGet();
+        }
+        if (applierParked) LockSupport.unpark(applier);
+        return true;
+    }
+
+    public long getConflatedCount() {
+        return conflated.get();
+    }
+
+    // events refused because too many sources were pending, or rejected by the book when applied
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Stops accepting events, waits for the applier to publish everything still pending and stops it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // an offer that got past the closed check finishes before the applier is told to stop
+        while (offersInFlight.get() > 0) Thread.onSpinWait();
+        stopped = true;
+        LockSupport.unpark(applier);
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void applyLoop() {
+        var batch = new ArrayList<MarketData>();
+        while (true) {
+            drainTo(batch);
+            if (!batch.isEmpty()) {
+                apply(batch);
+                batch.clear();
+            } else if (stopped) {
+                drainTo(batch);
+                if (batch.isEmpty()) return;
+            } else {
+                applierParked = true;
+                if (pendingBySource.isEmpty() && !stopped) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                applierParked = false;
+            }
+        }
+    }
+
+    private boolean put(MarketData marketData) {
+        while (true) {
+            if (pendingBySource.replace(marketData.source, marketData) != null) {
+                conflated.incrementAndGet();
+                return true;
+            }
+            if (pendingSources.incrementAndGet() > maxPendingSources) {
+                pendingSources.decrementAndGet();
+                return false;
+            }
+            if (pendingBySource.putIfAbsent(marketData.source, marketData) == null) return true;
+
+            // another producer added the source meanwhile, conflate with its event instead
+            pendingSources.decrementAndGet();
+        }
+    }
+
+    private void drainTo(List<MarketData> batch) {
+        for (var source : pendingBySource.keySet()) {
+            var marketData = pendingBySource.remove(source);
+            if (marketData == null) continue;
+
+            pendingSources.decrementAndGet();
+            batch.add(marketData);
+        }
+    }
+
+    private void apply(List<MarketData> batch) {
+        try {
+            orderBook.applyBatchExclusively(batch);
+        } catch (RuntimeException e) {
+            // keep every valid event of a batch that one bad event made fail as a whole
+            for (var marketData : batch) {
+                try {
+                    orderBook.applyExclusively(marketData);
+                } catch (RuntimeException rejected) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+        batches.incrementAndGet();
+    }
+}
@@ -0,0 +1,98 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static orderbook.LevelChange.Type.ADDED;
+import static orderbook.LevelChange.Type.CHANGED;
+import static orderbook.LevelChange.Type.REMOVED;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Ring of the latest {@link BookDelta}s of one book, indexed by version. Writers put a delta into its slot without
+ * waiting for anyone, and every {@link Subscription} reads the slots in version order at its own pace. A subscription
+ * that falls more than the ring capacity behind finds its slot overwritten by a newer version.
+ */
+final class DeltaPublisher {
+
+    static final int CAPACITY = 1024;
+
+    private static final Comparator<LevelChange> BID_CHANGE_COMPARATOR = (change1, change2) -> change2.price.compareTo(change1.price);
+    private static final Comparator<LevelChange> OFFER_CHANGE_COMPARATOR = (change1, change2) -> change1.price.compareTo(change2.price);
+
+    private final AtomicReferenceArray<BookDelta> ring = new AtomicReferenceArray<>(CAPACITY);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    void publish(Book previous, Book current) {
+        if (subscriptions.isEmpty()) return;
+
+        var delta = new BookDelta(
+                current.version,
+                changes(BUY, previous.bids, current.bids),
+                changes(SELL, previous.offers, current.offers),
+                !current.topOfBook.sameLevels(previous.topOfBook),
+                current.topOfBook
+        );
+
+        // concurrent writers may finish out of version order, a late delta must not replace a newer one
+        var index = slot(delta.version);
+        BookDelta replaced;
+        do {
+            replaced = ring.get(index);
+            if (replaced != null && replaced.version >= delta.version) return;
+        } while (!ring.compareAndSet(index, replaced, delta));
+
+        for (var subscription : subscriptions) subscription.wake();
+    }
+
+    // the delta in the slot of the version, which is an older or newer version when that one is not there
+    BookDelta get(long version) {
+        return ring.get(slot(version));
+    }
+
+    void add(Subscription subscription) {
+        subscriptions.add(subscription);
+    }
+
+    void remove(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    private static int slot(long version) {
+        return (int) (version & (CAPACITY - 1));
+    }
+
+    private static List<LevelChange> changes(Side side, SideBook previous, SideBook current) {
+        if (previous == current) return emptyList();
+
+        var keys = new HashSet<BigDecimal>();
+        for (var run : current.changedRuns(previous)) {
+            for (var order : run) keys.add(order.priceLevel.price.stripTrailingZeros());
+        }
+
+        var changes = new ArrayList<LevelChange>();
+        for (var key : keys) {
+            var before = previous.depth.levelAt(key);
+            var after = current.depth.levelAt(key);
+            if (before == null && after != null) {
+                changes.add(new LevelChange(ADDED, side, after.price, after.quantity, after.sources));
+            } else if (after == null && before != null) {
+                changes.add(new LevelChange(REMOVED, side, before.price, 0, 0));
+            } else if (after != null && (after.quantity != before.quantity || after.sources != before.sources)) {
+                changes.add(new LevelChange(CHANGED, side, after.price, after.quantity, after.sources));
+            }
+        }
+        changes.sort(side == BUY ? BID_CHANGE_COMPARATOR : OFFER_CHANGE_COMPARATOR);
+        return unmodifiableList(changes);
+    }
+}
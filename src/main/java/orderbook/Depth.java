@@ -0,0 +1,111 @@
+package orderbook;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Immutable aggregated depth of one side: total quantity and number of sources per price, kept both in a hash index
+ * for exact price lookups and in a list sorted best price first.
+ * <p>
+ * Prices are keyed with trailing zeros stripped so that lookups follow {@link BigDecimal#compareTo} like the
+ * order comparators do.
+ */
+final class Depth {
+
+    private final Comparator<DepthLevel> comparator;
+    private final Map<BigDecimal, DepthLevel> levelsByPrice;
+    private final List<DepthLevel> levels;
+
+    Depth(Comparator<DepthLevel> comparator) {
+        this(comparator, emptyMap(), emptyList());
+    }
+
+    private Depth(Comparator<DepthLevel> comparator, Map<BigDecimal, DepthLevel> levelsByPrice, List<DepthLevel> levels) {
+        this.comparator = comparator;
+        this.levelsByPrice = levelsByPrice;
+        this.levels = levels;
+    }
+
+    long quantityAt(BigDecimal price) {
+        var level = levelsByPrice.get(price.stripTrailingZeros());
+        return level == null ? 0 : level.quantity;
+    }
+
+    // the level at a price with trailing zeros stripped, null when nothing is quoted at it
+    DepthLevel levelAt(BigDecimal key) {
+        return levelsByPrice.get(key);
+    }
+
+    List<DepthLevel> levels() {
+        return levels;
+    }
+
+    // every run belongs to one source and is sorted by price, so orders of a source sharing a price are adjacent.
+    // Aggregating is proportional to the orders of the runs, but the price index and the level list are copied, which
+    // is O(distinct prices) however few levels change
+    Depth replace(List<List<Order>> oldRuns, List<List<Order>> newRuns) {
+        var changes = new HashMap<BigDecimal, DepthLevel>();
+        oldRuns.forEach(run -> accumulate(run, -1, changes));
+        newRuns.forEach(run -> accumulate(run, 1, changes));
+        if (changes.isEmpty()) return this;
+
+        var updatedLevelsByPrice = new HashMap<>(levelsByPrice);
+        var addedLevels = new ArrayList<DepthLevel>();
+        changes.forEach((key, level) -> {
+            if (level.sources == 0) {
+                updatedLevelsByPrice.remove(key);
+            } else if (updatedLevelsByPrice.put(key, level) == null) {
+                addedLevels.add(level);
+            }
+        });
+        addedLevels.sort(comparator);
+
+        var updatedLevels = new ArrayList<DepthLevel>(updatedLevelsByPrice.size());
+        var added = 0;
+        for (var level : levels) {
+            var current = updatedLevelsByPrice.get(level.priceKey);
+            if (current == null) continue;
+
+            while (added < addedLevels.size() && comparator.compare(addedLevels.get(added), current) < 0) {
+                updatedLevels.add(addedLevels.get(added++));
+            }
+            updatedLevels.add(current);
+        }
+        updatedLevels.addAll(addedLevels.subList(added, addedLevels.size()));
+
+        return new Depth(comparator, updatedLevelsByPrice, unmodifiableList(updatedLevels));
+    }
+
+    private void accumulate(List<Order> run, int sign, Map<BigDecimal, DepthLevel> changes) {
+        BigDecimal groupKey = null;
+        Order groupOrder = null;
+        var groupQuantity = 0L;
+        for (var order : run) {
+            var key = order.priceLevel.price.stripTrailingZeros();
+            if (!key.equals(groupKey)) {
+                if (groupKey != null) change(groupKey, groupOrder, sign * groupQuantity, sign, changes);
+                groupKey = key;
+                groupOrder = order;
+                groupQuantity = 0;
+            }
+            groupQuantity += order.priceLevel.quantity;
+        }
+        if (groupKey != null) change(groupKey, groupOrder, sign * groupQuantity, sign, changes);
+    }
+
+    private void change(BigDecimal key, Order order, long quantity, int sources, Map<BigDecimal, DepthLevel> changes) {
+        var level = changes.get(key);
+        if (level == null) level = levelsByPrice.get(key);
+        if (level == null) level = new DepthLevel(order.priceLevel.price, order.scaledPrice, key, 0, 0);
+
+        changes.put(key, level.plus(quantity, sources));
+    }
+}
@@ -0,0 +1,43 @@
+package orderbook;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Total quantity quoted at one price on one side of the book, across all sources.
+ */
+public class DepthLevel {
+
+    static final Comparator<DepthLevel> BID_COMPARATOR = (level1, level2) -> level2.price.compareTo(level1.price);
+    static final Comparator<DepthLevel> OFFER_COMPARATOR = (level1, level2) -> level1.price.compareTo(level2.price);
+    static final Comparator<DepthLevel> SCALED_BID_COMPARATOR = (level1, level2) -> Long.compare(level2.scaledPrice, level1.scaledPrice);
+    static final Comparator<DepthLevel> SCALED_OFFER_COMPARATOR = (level1, level2) -> Long.compare(level1.scaledPrice, level2.scaledPrice);
+
+    // the price as first quoted by any source, other sources may quote it with a different scale
+    public final BigDecimal price;
+    public final long quantity;
+    public final int sources;
+    final long scaledPrice;
+    final BigDecimal priceKey;
+
+    DepthLevel(BigDecimal price, long scaledPrice, BigDecimal priceKey, long quantity, int sources) {
+        this.price = price;
+        this.scaledPrice = scaledPrice;
+        this.priceKey = priceKey;
+        this.quantity = quantity;
+        this.sources = sources;
+    }
+
+    DepthLevel plus(long quantity, int sources) {
+        return new DepthLevel(price, scaledPrice, priceKey, this.quantity + quantity, this.sources + sources);
+    }
+
+    @Override
+    public String toString() {
+        return "DepthLevel{" +
+                "price=" + price +
+                ", quantity=" + quantity +
+                ", sources=" + sources +
+                '}';
+    }
+}
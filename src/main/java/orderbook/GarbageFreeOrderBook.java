@@ -0,0 +1,267 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.MutableMarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.math.BigDecimal.ZERO;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Order book whose ingest path allocates nothing once every source has been seen. Each source owns a slot of
+ * pre-sized primitive arrays that its events overwrite in place, prices are scaled longs, and instead of publishing
+ * a new snapshot per event the writer bumps a {@link StampedLock} that readers validate optimistically.
+ * <p>
+ * Events must come from a single writer thread, queries may come from any thread and are allowed to allocate.
+ */
+public class GarbageFreeOrderBook {
+
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private final String instrument;
+    private final PriceScale priceScale;
+    private final SourceRegistry sources = new SourceRegistry();
+    private final Slot[] slots;
+    private final StampedLock lock = new StampedLock();
+    private int slotCount;
+
+    public GarbageFreeOrderBook(String instrument, PriceScale priceScale, int maxSources) {
+        if (!(maxSources > 0)) throw new IllegalArgumentException("maxSources must be positive");
+
+        this.instrument = requireNonNull(instrument, "instrument");
+        this.priceScale = requireNonNull(priceScale, "priceScale");
+        this.slots = new Slot[maxSources];
+    }
+
+    public String getInstrument() {
+        return instrument;
+    }
+
+    public void handleMarketDataEvent(MutableMarketData marketData) {
+        validate(marketData);
+
+        var slot = slot(marketData.getSource());
+
+        var stamp = lock.writeLock();
+        try {
+            slot.bids.copyFrom(marketData);
+            slot.offers.copyFrom(marketData);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void reset() {
+        var stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < slotCount; i++) {
+                slots[i].bids.count = 0;
+                slots[i].offers.count = 0;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public List<Order> getOrdersBySide(Side side) {
+        var stamp = lock.readLock();
+        try {
+            var orders = new ArrayList<Order>();
+            for (int i = 0; i < slotCount; i++) {
+                var levels = slots[i].side(side);
+                for (int level = 0; level < levels.count; level++) {
+                    var priceLevel = new PriceLevel(priceScale.toPrice(levels.prices[level]), levels.quantities[level], side);
+                    orders.add(new Order(slots[i].source, i, priceLevel, levels.prices[level]));
+                }
+            }
+            orders.sort(OrderBook.comparator(side, priceScale, sources));
+            return unmodifiableList(orders);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getTotalQuantityForPriceAndSide(BigDecimal price, Side side) {
+        var scaledPrice = priceScale.scaledPriceOrUnrepresentable(price);
+        return readLong(() -> totalQuantity(scaledPrice, side));
+    }
+
+    public BigDecimal getVwapForQuantityAndSide(long quantity, Side side) {
+        return read(() -> vwap(quantity, side));
+    }
+
+    private long totalQuantity(long scaledPrice, Side side) {
+        var total = 0L;
+        for (int i = 0; i < slotCount; i++) {
+            var slot = slots[i];
+            if (slot == null) continue;
+
+            var levels = slot.side(side);
+            for (int level = 0; level < levels.count; level++) {
+                if (levels.prices[level] == scaledPrice) total += levels.quantities[level];
+            }
+        }
+        return total;
+    }
+
+    private BigDecimal vwap(long quantity, Side side) {
+        var count = 0L;
+        var notional = Notional.ZERO;
+        for (int i = 0; i < slotCount; i++) {
+            var slot = slots[i];
+            if (slot == null) continue;
+
+            var levels = slot.side(side);
+            for (int level = 0; level < levels.count; level++) {
+                if (levels.quantities[level] != quantity) continue;
+
+                count++;
+                notional = notional.plus(levels.prices[level], quantity);
+            }
+        }
+
+        if (count == 0) return ZERO;
+
+        return notional.toBigDecimal(priceScale.scale())
+                .divide(BigDecimal.valueOf(Math.multiplyExact(quantity, count)), RoundingMode.HALF_EVEN);
+    }
+
+    // optimistic reads can observe a half written event, which fails validation and is read again
+    private long readLong(LongSupplier reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            var stamp = lock.tryOptimisticRead();
+            if (stamp == 0) continue;
+
+            try {
+                var result = reader.getAsLong();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+
+        var stamp = lock.readLock();
+        try {
+            return reader.getAsLong();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            var stamp = lock.tryOptimisticRead();
+            if (stamp == 0) continue;
+
+            try {
+                var result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+
+        var stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void validate(MutableMarketData marketData) {
+        if (!instrument.equals(marketData.getInstrument())) throw new IllegalArgumentException(
+                String.format("Incorrect instrument, %s required, but %s provided", instrument, marketData.getInstrument())
+        );
+        validateTicks(marketData, BUY);
+        validateTicks(marketData, SELL);
+    }
+
+    private void validateTicks(MutableMarketData marketData, Side side) {
+        for (int level = 0; level < marketData.getLevelCount(side); level++) {
+            if (marketData.getScaledPrice(side, level) % priceScale.tickSize() != 0) throw new IllegalArgumentException(String.format(
+                    "Price %s is not a multiple of %s", marketData.getScaledPrice(side, level), priceScale.tickSize()
+            ));
+        }
+    }
+
+    // slots are indexed by source id, so sources beyond the capacity keep being rejected by their id
+    private Slot slot(String source) {
+        var sourceId = sources.idOf(source);
+        if (sourceId < slotCount) return slots[sourceId];
+        if (sourceId >= slots.length) throw new IllegalArgumentException(String.format(
+                "No more than %s sources can be handled, %s rejected", slots.length, source
+        ));
+
+        var slot = new Slot(source);
+        var stamp = lock.writeLock();
+        try {
+            slots[slotCount++] = slot;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return slot;
+    }
+
+    private static final class Slot {
+        final String source;
+        final Levels bids = new Levels(BUY);
+        final Levels offers = new Levels(SELL);
+
+        Slot(String source) {
+            this.source = source;
+        }
+
+        Levels side(Side side) {
+            return side == BUY ? bids : offers;
+        }
+    }
+
+    // levels of one source on one side, kept in book order: best price first, then larger quantity first
+    private static final class Levels {
+        final Side side;
+        final long[] prices = new long[MarketData.MAX_ELEMENTS_PER_SIDE];
+        final long[] quantities = new long[MarketData.MAX_ELEMENTS_PER_SIDE];
+        int count;
+
+        Levels(Side side) {
+            this.side = side;
+        }
+
+        void copyFrom(MutableMarketData marketData) {
+            count = 0;
+            for (int level = 0; level < marketData.getLevelCount(side); level++) {
+                insert(marketData.getScaledPrice(side, level), marketData.getQuantity(side, level));
+            }
+        }
+
+        private void insert(long price, long quantity) {
+            var position = count;
+            while (position > 0 && before(price, quantity, prices[position - 1], quantities[position - 1])) {
+                prices[position] = prices[position - 1];
+                quantities[position] = quantities[position - 1];
+                position--;
+            }
+            prices[position] = price;
+            quantities[position] = quantity;
+            count++;
+        }
+
+        private boolean before(long price, long quantity, long otherPrice, long otherQuantity) {
+            if (price != otherPrice) return side == BUY ? price > otherPrice : price < otherPrice;
+            return quantity > otherQuantity;
+        }
+    }
+}
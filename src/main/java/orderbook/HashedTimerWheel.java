@@ -0,0 +1,159 @@
+package orderbook;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel shared by many books, see {@link OrderBook#expireSilentSources(HashedTimerWheel, Duration)}.
+ * Timeouts are scheduled from any thread in O(1) and land in the bucket of their deadline tick, a single thread
+ * advances the wheel and expires every timeout of each bucket it passes whose deadline is reached.
+ * <p>
+ * The time of the wheel is the {@link System#nanoTime()} of its last advance, so it is behind the clock by up to one
+ * tick and reading it costs a volatile load.
+ */
+public class HashedTimerWheel implements AutoCloseable {
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startNanos;
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong failed = new AtomicLong();
+    // advancing thread only
+    private final List<Runnable> afterTick = new ArrayList<>();
+    private long nextTick;
+    private volatile long time;
+    private volatile Thread ticker;
+    private volatile boolean closed;
+
+    public HashedTimerWheel(Duration tick, int ticksPerWheel) {
+        if (!(tick.toNanos() > 0)) throw new IllegalArgumentException("tick must be positive");
+        if (!(ticksPerWheel > 0 && Integer.bitCount(ticksPerWheel) == 1)) throw new IllegalArgumentException(
+                "ticksPerWheel must be a positive power of two"
+        );
+
+        this.tickNanos = tick.toNanos();
+        this.buckets = new Timeout[ticksPerWheel];
+        this.mask = ticksPerWheel - 1;
+        this.startNanos = System.nanoTime();
+        this.time = startNanos;
+    }
+
+    /**
+     * Starts a thread advancing the wheel once per tick until closed.
+     */
+    public synchronized void start(ThreadFactory threadFactory) {
+        if (ticker != null) throw new IllegalStateException("Already started");
+
+        ticker = threadFactory.newThread(() -> {
+            while (!closed) {
+                advanceTo(System.nanoTime());
+                LockSupport.parkNanos(this, tickNanos);
+            }
+        });
+        ticker.start();
+    }
+
+    public long time() {
+        return time;
+    }
+
+    // timeouts and after tick tasks that threw
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        var thread = ticker;
+        if (thread == null || thread == Thread.currentThread()) return;
+
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void schedule(Timeout timeout, long deadlineNanos) {
+        timeout.deadlineNanos = deadlineNanos;
+        scheduled.add(timeout);
+    }
+
+    // runs the task on the advancing thread once the tick being processed is done
+    void afterTick(Runnable task) {
+        afterTick.add(task);
+    }
+
+    // called by a single thread, the one started by start() unless the wheel is driven by hand
+    void advanceTo(long nowNanos) {
+        if (nowNanos - time > 0) time = nowNanos;
+
+        var currentTick = (time - startNanos) / tickNanos;
+        while (nextTick <= currentTick) {
+            for (Timeout timeout; (timeout = scheduled.poll()) != null; ) add(timeout);
+            expire(nextTick++);
+            for (var task : afterTick) run(task);
+            afterTick.clear();
+        }
+    }
+
+    private void add(Timeout timeout) {
+        var index = (int) (Math.max(tickOf(timeout.deadlineNanos), nextTick) & mask);
+        timeout.next = buckets[index];
+        buckets[index] = timeout;
+    }
+
+    private void expire(long tick) {
+        var index = (int) (tick & mask);
+        var timeout = buckets[index];
+        buckets[index] = null;
+        while (timeout != null) {
+            var next = timeout.next;
+            timeout.next = null;
+            if (tickOf(timeout.deadlineNanos) <= tick) {
+                expire(timeout);
+            } else {
+                // due in a later round of the wheel
+                timeout.next = buckets[index];
+                buckets[index] = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        try {
+            timeout.expire(time);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private long tickOf(long nanos) {
+        return Math.max(nanos - startNanos, 0) / tickNanos;
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    // a timeout is in at most one bucket at a time, scheduling it again before it expired is not supported
+    abstract static class Timeout {
+        private long deadlineNanos;
+        private Timeout next;
+
+        abstract void expire(long nowNanos);
+    }
+}
@@ -0,0 +1,79 @@
+package orderbook;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative longs with log-linear buckets in the style of HdrHistogram: values below
+ * {@code 2 * SUB_BUCKETS} are counted exactly, larger ones in buckets no wider than 1/{@value #SUB_BUCKETS} of
+ * their value. Recording is a single atomic increment, reading is not atomic across buckets.
+ */
+public final class Histogram {
+
+    static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS);
+
+    // negative values are counted as 0
+    public void record(long value) {
+        counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    public long getCount() {
+        var count = 0L;
+        for (int i = 0; i < counts.length(); i++) count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Highest value of the bucket holding the given percentile of the recorded values, 0 when nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException("percentile must be between 0 and 100");
+
+        var snapshot = new long[counts.length()];
+        var count = 0L;
+        for (int i = 0; i < snapshot.length; i++) count += snapshot[i] = counts.get(i);
+        if (count == 0) return 0;
+
+        var target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        var seen = 0L;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return highestValue(i);
+        }
+        return highestValue(snapshot.length - 1);
+    }
+
+    public long getMax() {
+        for (int i = counts.length() - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) return highestValue(i);
+        }
+        return 0;
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+
+        var shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+
+        var shift = index / SUB_BUCKETS - 1;
+        var subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1L) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" +
+                "count=" + getCount() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
@@ -0,0 +1,130 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the records of a {@link MarketDataJournal} file in order, one mapped chunk at a time.
+ * <p>
+ * The file starts with a header of {@value #HEADER_BYTES} bytes: magic, format version and chunk size. Records never
+ * span chunks and are laid out as
+ * <pre>
+ * int length, long sequence, short instrument bytes, instrument, short source bytes, source, short level count,
+ * level count times (byte side, int price scale, long unscaled price, long quantity)
+ * </pre>
+ * A length of 0 ends the journal and {@value #PADDING} skips the rest of the chunk.
+ */
+final class JournalCursor {
+
+    static final int MAGIC = 0x4F424A4E;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int PADDING = -1;
+    static final int LEVEL_BYTES = 1 + Integer.BYTES + 2 * Long.BYTES;
+
+    private static final Side[] SIDES = Side.values();
+
+    private final FileChannel channel;
+    private final int chunkSize;
+    private final long fileSize;
+    private MappedByteBuffer chunk;
+    private long chunkIndex = -1;
+    private long position = HEADER_BYTES;
+    private int recordOffset;
+
+    JournalCursor(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+
+        var header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) break;
+        }
+        if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC) throw new IOException("Not a market data journal");
+        if (header.getInt(4) != FORMAT_VERSION) throw new IOException("Unsupported journal format version " + header.getInt(4));
+
+        this.chunkSize = header.getInt(8);
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    // position of the next record, after next() returned false the position the journal continues at
+    long position() {
+        return position;
+    }
+
+    boolean next() throws IOException {
+        while (true) {
+            var index = position / chunkSize;
+            var offset = (int) (position % chunkSize);
+            if (index * chunkSize >= fileSize) return false;
+
+            if (index != chunkIndex) {
+                chunk = channel.map(FileChannel.MapMode.READ_ONLY, index * chunkSize, Math.min(chunkSize, fileSize - index * chunkSize));
+                chunkIndex = index;
+            }
+            if (offset + Integer.BYTES > chunk.limit()) return false;
+
+            var length = chunk.getInt(offset);
+            if (length == 0) return false;
+            if (length == PADDING) {
+                position = (index + 1) * chunkSize;
+                continue;
+            }
+
+            recordOffset = offset;
+            position += length;
+            return true;
+        }
+    }
+
+    long sequence() {
+        return chunk.getLong(recordOffset + Integer.BYTES);
+    }
+
+    boolean hasInstrument(byte[] instrument) {
+        var offset = recordOffset + Integer.BYTES + Long.BYTES;
+        if (chunk.getShort(offset) != instrument.length) return false;
+
+        for (int i = 0; i < instrument.length; i++) {
+            if (chunk.get(offset + Short.BYTES + i) != instrument[i]) return false;
+        }
+        return true;
+    }
+
+    MarketData marketData() {
+        var offset = recordOffset + Integer.BYTES + Long.BYTES;
+        var instrument = string(offset);
+        offset += Short.BYTES + chunk.getShort(offset);
+        var source = string(offset);
+        offset += Short.BYTES + chunk.getShort(offset);
+
+        var levelCount = chunk.getShort(offset);
+        offset += Short.BYTES;
+        var priceList = new ArrayList<PriceLevel>(levelCount);
+        for (int level = 0; level < levelCount; level++, offset += LEVEL_BYTES) {
+            var side = SIDES[chunk.get(offset)];
+            var price = BigDecimal.valueOf(chunk.getLong(offset + 1 + Integer.BYTES), chunk.getInt(offset + 1));
+            priceList.add(new PriceLevel(price, chunk.getLong(offset + 1 + Integer.BYTES + Long.BYTES), side));
+        }
+        return new MarketData(source, instrument, priceList);
+    }
+
+    private String string(int offset) {
+        var bytes = new byte[chunk.getShort(offset)];
+        chunk.duplicate().position(offset + Short.BYTES).get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.Side;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Rebuilds an {@link OrderBook} from a {@link MarketDataJournal}. Events of the book's instrument are applied in
+ * batches of up to {@value #BATCH_SIZE}, which leaves the book in the same state as applying them one by one with a
+ * single publication per batch.
+ */
+public final class JournalReplay {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private JournalReplay() {
+    }
+
+    /**
+     * Applies the journaled events of the book's instrument with a sequence up to {@code toSequence} and returns how
+     * many were applied. The book must not be written to by anything else during the replay.
+     */
+    public static long replay(Path journal, OrderBook orderBook, long toSequence) throws IOException {
+        return replay(journal, orderBook, 1, toSequence);
+    }
+
+    public static long replay(Path journal, OrderBook orderBook, long fromSequence, long toSequence) throws IOException {
+        var instrument = orderBook.getInstrument().getBytes(UTF_8);
+        var applied = 0L;
+        try (var channel = FileChannel.open(journal, READ)) {
+            var cursor = new JournalCursor(channel);
+            var batch = new ArrayList<MarketData>(BATCH_SIZE);
+            while (cursor.next()) {
+                var sequence = cursor.sequence();
+                if (sequence > toSequence) break;
+                if (sequence < fromSequence || !cursor.hasInstrument(instrument)) continue;
+
+                batch.add(cursor.marketData());
+                if (batch.size() == BATCH_SIZE) {
+                    orderBook.applyBatchExclusively(batch);
+                    applied += batch.size();
+                    batch.clear();
+                }
+            }
+            orderBook.applyBatchExclusively(batch);
+            applied += batch.size();
+        }
+        return applied;
+    }
+
+    /**
+     * Replays a journal into a book and prints its top of book: {@code JournalReplay <journal> <instrument> [toSequence]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JournalReplay <journal> <instrument> [toSequence]");
+            System.exit(1);
+        }
+
+        var orderBook = new OrderBook(args[1]);
+        var toSequence = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+
+        var started = System.nanoTime();
+        var applied = replay(Path.of(args[0]), orderBook, toSequence);
+        var elapsedNanos = System.nanoTime() - started;
+
+        System.out.printf("Replayed %d events in %d ms (%.0f events/s)%n", applied, elapsedNanos / 1_000_000, applied * 1e9 / Math.max(elapsedNanos, 1));
+        for (var side : Side.values()) {
+            System.out.println(side + " " + orderBook.getTopOfBook().levels(side));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+
+/**
+ * Change of one aggregated price level, see {@link DepthLevel}, between two versions of a book.
+ */
+public class LevelChange {
+
+    public enum Type {
+        ADDED, CHANGED, REMOVED
+    }
+
+    public final Type type;
+    public final Side side;
+    public final BigDecimal price;
+    // total quantity and number of sources at the price after the change, 0 when the level was removed
+    public final long quantity;
+    public final int sources;
+
+    LevelChange(Type type, Side side, BigDecimal price, long quantity, int sources) {
+        this.type = type;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.sources = sources;
+    }
+
+    @Override
+    public String toString() {
+        return "LevelChange{" +
+                "type=" + type +
+                ", side=" + side +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                ", sources=" + sources +
+                '}';
+    }
+}
@@ -0,0 +1,239 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static orderbook.JournalCursor.FORMAT_VERSION;
+import static orderbook.JournalCursor.HEADER_BYTES;
+import static orderbook.JournalCursor.LEVEL_BYTES;
+import static orderbook.JournalCursor.MAGIC;
+import static orderbook.JournalCursor.PADDING;
+
+/**
+ * Append-only binary journal of {@link MarketData} events, written through a memory-mapped file. Callers only hand
+ * events to a queue, a writer thread encodes them in a fixed layout, see {@link JournalCursor}, and numbers them with
+ * a sequence that continues across reopenings of the same file. {@link JournalReplay} rebuilds books from it.
+ * <p>
+ * Events should be appended once a book accepted them, the journal itself does not validate them.
+ */
+public class MarketDataJournal implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 1_000;
+    private static final int MAX_LEVELS = 2 * MarketData.MAX_ELEMENTS_PER_SIDE;
+
+    private final FileChannel channel;
+    private final int chunkSize;
+    private final MpscArrayQueue<MarketData> queue;
+    private final Thread writer;
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger appendsInFlight = new AtomicInteger();
+    // writer thread only
+    private final Map<String, byte[]> encodedStrings = new HashMap<>();
+    private final long[] unscaledPrices = new long[MAX_LEVELS];
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long sequence;
+    private volatile long writtenSequence;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    // set once no append is in flight any more, the writer stops after writing what is queued then
+    private volatile boolean stopped;
+
+    public MarketDataJournal(Path path) throws IOException {
+        this(path, DEFAULT_CHUNK_SIZE, 1 << 16, runnable -> {
+            var thread = new Thread(runnable, "orderbook-journal-" + path.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the journal at the path, creating it with the given chunk size or continuing after its last record.
+     */
+    public MarketDataJournal(Path path, int chunkSize, int queueCapacity, ThreadFactory threadFactory) throws IOException {
+        if (!(chunkSize >= HEADER_BYTES + maxRecordLength())) throw new IllegalArgumentException(
+                String.format("chunkSize must be at least %s", HEADER_BYTES + maxRecordLength())
+        );
+
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+        try {
+            if (channel.size() == 0) {
+                var header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(chunkSize);
+                channel.write(header.flip(), 0);
+                this.chunkSize = chunkSize;
+                map(0);
+                chunk.position(HEADER_BYTES);
+            } else {
+                var cursor = new JournalCursor(channel);
+                while (cursor.next()) sequence = cursor.sequence();
+                this.chunkSize = cursor.chunkSize();
+                map(cursor.position() / this.chunkSize * this.chunkSize);
+                chunk.position((int) (cursor.position() - chunkStart));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.writtenSequence = sequence;
+        this.queue = new MpscArrayQueue<>(queueCapacity);
+        this.writer = threadFactory.newThread(this::writeLoop);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the event for the writer thread, waiting while the queue is full.
+     */
+    public void append(MarketData marketData) {
+        appendsInFlight.incrementAndGet();
+        try {
+            if (closed) throw new IllegalStateException("Closed");
+
+            while (!queue.offer(marketData)) {
+                if (closed) throw new IllegalStateException("Closed");
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+        } finally {
+            appendsInFlight.decrementAndGet();
+        }
+        if (writerParked) LockSupport.unpark(writer);
+    }
+
+    // sequence of the last event written to the mapped file, events are numbered from 1
+    public long getWrittenSequence() {
+        return writtenSequence;
+    }
+
+    // events that could not be encoded or written, such as prices whose unscaled value does not fit a long
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Stops accepting events, waits for the writer to write everything queued, forces it to storage and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        // an append that got past the closed check is queued before the writer is told to stop
+        while (appendsInFlight.get() > 0) Thread.onSpinWait();
+        stopped = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        chunk.force();
+        channel.close();
+    }
+
+    private void writeLoop() {
+        var unforced = false;
+        while (true) {
+            var marketData = queue.poll();
+            if (marketData != null) {
+                try {
+                    write(marketData);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+                unforced = true;
+            } else if (stopped && queue.isEmpty()) {
+                return;
+            } else if (unforced) {
+                // only force once the queue ran dry, so bursts are not slowed down by it
+                chunk.force();
+                unforced = false;
+            } else {
+                writerParked = true;
+                if (queue.isEmpty() && !stopped) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                writerParked = false;
+            }
+        }
+    }
+
+    private void write(MarketData marketData) {
+        var priceList = marketData.priceList;
+        try {
+            for (int level = 0; level < priceList.size(); level++) {
+                unscaledPrices[level] = priceList.get(level).price.unscaledValue().longValueExact();
+            }
+        } catch (ArithmeticException e) {
+            failed.incrementAndGet();
+            return;
+        }
+
+        var instrument = encoded(marketData.instrument);
+        var source = encoded(marketData.source);
+        if (instrument.length > Short.MAX_VALUE || source.length > Short.MAX_VALUE) {
+            failed.incrementAndGet();
+            return;
+        }
+        var length = Integer.BYTES + Long.BYTES + Short.BYTES + instrument.length + Short.BYTES + source.length + Short.BYTES + priceList.size() * LEVEL_BYTES;
+        var offset = reserve(length);
+
+        chunk.position(offset + Integer.BYTES);
+        chunk.putLong(++sequence);
+        chunk.putShort((short) instrument.length).put(instrument);
+        chunk.putShort((short) source.length).put(source);
+        chunk.putShort((short) priceList.size());
+        for (int level = 0; level < priceList.size(); level++) {
+            var priceLevel = priceList.get(level);
+            chunk.put((byte) priceLevel.side.ordinal())
+                    .putInt(priceLevel.price.scale())
+                    .putLong(unscaledPrices[level])
+                    .putLong(priceLevel.quantity);
+        }
+        // the length goes in last, a reader never sees a record that is not complete
+        chunk.putInt(offset, length);
+        writtenSequence = sequence;
+    }
+
+    // offset in the current chunk of a record of the length, with room left for the length of the next one
+    private int reserve(int length) {
+        var offset = chunk.position();
+        if (offset + length + Integer.BYTES <= chunkSize) return offset;
+
+        chunk.putInt(offset, PADDING);
+        chunk.force();
+        map(chunkStart + chunkSize);
+        return 0;
+    }
+
+    private void map(long start) {
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, chunkSize);
+            chunkStart = start;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] encoded(String string) {
+        return encodedStrings.computeIfAbsent(string, key -> key.getBytes(UTF_8));
+    }
+
+    private static int maxRecordLength() {
+        return Integer.BYTES + Long.BYTES + 3 * Short.BYTES + 2 * Short.MAX_VALUE + MAX_LEVELS * LEVEL_BYTES;
+    }
+}
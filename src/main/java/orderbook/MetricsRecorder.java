@@ -0,0 +1,93 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Collections.unmodifiableMap;
+import static orderbook.marketdata.Side.BUY;
+
+/**
+ * Lock-free {@link OrderBookMetrics} for a single book, recording latencies and CAS retries into {@link Histogram}s
+ * and counting updates per source and publications. Rates are the difference between two reads of a count divided
+ * by the time between them, so whoever scrapes the recorder decides the window.
+ */
+public class MetricsRecorder implements OrderBookMetrics {
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Histogram casRetries = new Histogram();
+    private final ConcurrentHashMap<String, LongAdder> sourceUpdates = new ConcurrentHashMap<>();
+    private final LongAdder publications = new LongAdder();
+    private final LongAdder expiredSources = new LongAdder();
+    private volatile int bidLevels;
+    private volatile int offerLevels;
+
+    public MetricsRecorder() {
+        for (var operation : Operation.values()) latencies.put(operation, new Histogram());
+    }
+
+    @Override
+    public void onLatency(Operation operation, long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    @Override
+    public void onCasRetries(int retries) {
+        casRetries.record(retries);
+    }
+
+    @Override
+    public void onSourceUpdate(String source) {
+        var updates = sourceUpdates.get(source);
+        if (updates == null) updates = sourceUpdates.computeIfAbsent(source, key -> new LongAdder());
+        updates.increment();
+    }
+
+    @Override
+    public void onSourcesExpired(int sources) {
+        expiredSources.add(sources);
+    }
+
+    @Override
+    public void onPublished(long version, int bidLevels, int offerLevels) {
+        publications.increment();
+        this.bidLevels = bidLevels;
+        this.offerLevels = offerLevels;
+    }
+
+    public Histogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public Histogram getCasRetries() {
+        return casRetries;
+    }
+
+    public long getUpdateCount(String source) {
+        var updates = sourceUpdates.get(source);
+        return updates == null ? 0 : updates.sum();
+    }
+
+    public Map<String, Long> getUpdateCounts() {
+        var counts = new HashMap<String, Long>();
+        sourceUpdates.forEach((source, updates) -> counts.put(source, updates.sum()));
+        return unmodifiableMap(counts);
+    }
+
+    public long getPublicationCount() {
+        return publications.sum();
+    }
+
+    public long getExpiredSourceCount() {
+        return expiredSources.sum();
+    }
+
+    // price levels of the side in the last published snapshot
+    public int getDepth(Side side) {
+        return side == BUY ? bidLevels : offerLevels;
+    }
+}
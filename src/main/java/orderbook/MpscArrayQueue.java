@@ -0,0 +1,70 @@
+package orderbook;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Every slot carries a sequence number telling
+ * producers whether it is free for the current lap and the consumer whether it has been filled, so producers only
+ * contend on the tail counter and the consumer never uses compare-and-set.
+ */
+final class MpscArrayQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscArrayQueue(int capacity) {
+        if (!(capacity > 0)) throw new IllegalArgumentException("capacity must be positive");
+
+        // a single slot could not tell a filled slot from a free one of the next lap
+        var size = Math.max(2, Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1);
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    boolean offer(E element) {
+        while (true) {
+            var position = tail.get();
+            var index = (int) (position & mask);
+            var available = sequences.get(index) - position;
+            if (available < 0) return false;
+            if (available == 0 && tail.compareAndSet(position, position + 1)) {
+                buffer.set(index, element);
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    // must only be called from the consumer thread
+    E poll() {
+        var position = head;
+        var index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) return null;
+
+        var element = buffer.get(index);
+        buffer.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    // approximate while producers are active
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
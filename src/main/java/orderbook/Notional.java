@@ -0,0 +1,45 @@
+package orderbook;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Immutable 128-bit sum of scaled price times quantity, so VWAP over scaled prices never overflows a long and
+ * allocates a {@link BigDecimal} only when the final result is produced.
+ */
+final class Notional {
+
+    static final Notional ZERO = new Notional(0, 0);
+
+    private final long high;
+    private final long low;
+
+    private Notional(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    Notional plus(long scaledPrice, long quantity) {
+        var productLow = scaledPrice * quantity;
+        var productHigh = Math.multiplyHigh(scaledPrice, quantity);
+
+        var sumLow = low + productLow;
+        var carry = Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0;
+        return new Notional(Math.addExact(Math.addExact(high, productHigh), carry), sumLow);
+    }
+
+    Notional minus(long scaledPrice, long quantity) {
+        return plus(Math.negateExact(scaledPrice), quantity);
+    }
+
+    BigDecimal toBigDecimal(int scale) {
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) return BigDecimal.valueOf(low, scale);
+
+        var bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+}
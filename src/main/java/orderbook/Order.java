@@ -6,12 +6,24 @@ import static java.util.Objects.requireNonNull;
 
 public class Order {
 
+    static final int NO_SOURCE_ID = -1;
+
     public final String source;
     public final PriceLevel priceLevel;
+    // id of the source in the SourceRegistry of the book holding this order, NO_SOURCE_ID outside of a book
+    final int sourceId;
+    // price in units of the book's PriceScale, 0 when the book compares BigDecimal prices
+    final long scaledPrice;
 
     public Order(String source, PriceLevel priceLevel) {
+        this(source, NO_SOURCE_ID, priceLevel, 0);
+    }
+
+    Order(String source, int sourceId, PriceLevel priceLevel, long scaledPrice) {
         this.source = requireNonNull(source, "source");
+        this.sourceId = sourceId;
         this.priceLevel = requireNonNull(priceLevel, "priceLevel");
+        this.scaledPrice = scaledPrice;
     }
 
 
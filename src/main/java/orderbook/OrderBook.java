@@ -1,27 +1,39 @@
 package orderbook;
 
+import orderbook.OrderBookMetrics.Operation;
+import orderbook.marketdata.LevelUpdate;
 import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
 import orderbook.marketdata.Side;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Stream;
+import java.util.function.IntPredicate;
 
-import static java.math.BigDecimal.ZERO;
-import static java.util.Collections.emptyList;
-import static java.util.Collections.emptyMap;
-import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toUnmodifiableList;
+import static orderbook.marketdata.LevelUpdate.Action.ADD;
+import static orderbook.marketdata.LevelUpdate.Action.DELETE;
 import static orderbook.marketdata.Side.BUY;
 import static orderbook.marketdata.Side.SELL;
 
 public class OrderBook {
 
+    // levels per side precomputed for every published snapshot, see getTopOfBook
+    public static final int TOP_OF_BOOK_LEVELS = 5;
+
     public static final Comparator<Order> BID_COMPARATOR = ((Comparator<Order>) (order1, order2) -> order2.priceLevel.price.compareTo(order1.priceLevel.price))
             .thenComparing((order1, order2) -> Long.compare(order2.priceLevel.quantity, order1.priceLevel.quantity))
             .thenComparing(order -> order.source);
@@ -30,85 +42,463 @@ public class OrderBook {
             .thenComparing((order1, order2) -> Long.compare(order2.priceLevel.quantity, order1.priceLevel.quantity))
             .thenComparing(order -> order.source);
 
-    private final static Map<Side, Comparator<Order>> COMPARATOR_MAP = Map.of(
-            BUY, BID_COMPARATOR,
-            SELL, OFFER_COMPARATOR
-    );
-
     private final String instrument;
-    private final AtomicReference<Map<Side, List<Order>>> orders = new AtomicReference<>(emptyMap());
+    private final PriceScale priceScale;
+    private final SourceRegistry sources;
+    private final Book emptyBook;
+    private final AtomicReference<Book> book;
+    private final OrderBookMetrics metrics;
+    private final boolean timed;
+    private volatile DeltaPublisher deltaPublisher;
+    private volatile SourceExpiry sourceExpiry;
 
     public OrderBook(String instrument) {
+        this(instrument, null, new SourceRegistry(), OrderBookMetrics.NO_OP);
+    }
+
+    public OrderBook(String instrument, OrderBookMetrics metrics) {
+        this(instrument, null, new SourceRegistry(), requireNonNull(metrics, "metrics"));
+    }
+
+    /**
+     * Creates a book that stores prices as longs in the given scale. Prices that are not representable in it are
+     * rejected, and VWAP results carry the scale of the book instead of the largest scale of the averaged prices.
+     */
+    public OrderBook(String instrument, PriceScale priceScale) {
+        this(instrument, requireNonNull(priceScale, "priceScale"), new SourceRegistry(), OrderBookMetrics.NO_OP);
+    }
+
+    public OrderBook(String instrument, PriceScale priceScale, OrderBookMetrics metrics) {
+        this(instrument, requireNonNull(priceScale, "priceScale"), new SourceRegistry(), requireNonNull(metrics, "metrics"));
+    }
+
+    private OrderBook(String instrument, PriceScale priceScale, SourceRegistry sources, OrderBookMetrics metrics) {
         this.instrument = instrument;
+        this.priceScale = priceScale;
+        this.sources = sources;
+        this.emptyBook = new Book(sideBook(BUY), sideBook(SELL), 0);
+        this.book = new AtomicReference<>(emptyBook);
+        this.metrics = metrics;
+        this.timed = metrics != OrderBookMetrics.NO_OP;
+    }
+
+    public String getInstrument() {
+        return instrument;
     }
 
     public void handleMarketDataEvent(MarketData marketData) {
+        var start = startTime();
         validate(marketData);
 
-        Map<Side, List<Order>> orderMap;
-        Map<Side, List<Order>> updatedOrderMap;
+        var sourceId = sources.idOf(marketData.source);
+        var bidRun = sortedRun(marketData, sourceId, emptyBook.bids);
+        var offerRun = sortedRun(marketData, sourceId, emptyBook.offers);
+        touched(sourceId);
+
+        var retries = -1;
+        Book current;
+        Book updated;
         do {
-            orderMap = orders.get();
-            updatedOrderMap = new HashMap<>();
+            retries++;
+            current = book.get();
+            updated = current.withSource(sourceId, bidRun, offerRun);
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+
+        metrics.onCasRetries(retries);
+        metrics.onSourceUpdate(marketData.source);
+        recordLatency(Operation.MARKET_DATA_EVENT, start);
+    }
 
-            for (int i = 0; i < Side.values().length; i++) {
-                Side side = Side.values()[i];
+    /**
+     * Adds, modifies or deletes one level of a source, leaving its other levels as they are. A level is identified by
+     * side and price, adding a level the source already quotes or modifying or deleting one it does not is rejected.
+     * A full {@link MarketData} event of the source replaces every level again, for instance to resynchronize.
+     * <p>
+     * Only the changed level is sorted in and aggregated, but the snapshot is copied on write as for a full event, so
+     * an update still costs O(sources + distinct prices + distinct quantities) of the side for copying its indexes.
+     */
+    public void handleLevelUpdate(LevelUpdate levelUpdate) {
+        var start = startTime();
+        if (!instrument.equals(levelUpdate.instrument)) throw new IllegalArgumentException(
+                String.format("Incorrect instrument, %s required, but %s provided", instrument, levelUpdate.instrument)
+        );
 
-                final var orders = orderMap.getOrDefault(side, emptyList());
+        var sourceId = sources.idOf(levelUpdate.source);
+        var added = levelUpdate.action == DELETE
+                ? List.<Order>of()
+                : List.of(order(levelUpdate.source, sourceId, new PriceLevel(levelUpdate.price, levelUpdate.quantity, levelUpdate.side)));
 
-                var updatedOrders = Stream.concat(
-                        orders.stream()
-                                .filter(order -> !order.source.equals(marketData.source)),
-                        marketData.priceList.stream()
-                                .filter(price -> price.side == side)
-                                .map(price -> new Order(marketData.source, price))
-                ).sorted(COMPARATOR_MAP.get(side)
-                ).collect(toUnmodifiableList());
+        var retries = -1;
+        Book current;
+        Book updated;
+        do {
+            retries++;
+            current = book.get();
+            var sideBook = current.side(levelUpdate.side);
+            var run = sideBook.run(sourceId);
+            var removed = ordersAt(run, levelUpdate.price);
+            validate(levelUpdate, run, removed);
+            // only an update that is applied keeps the source alive, and only once it is validated against this run
+            touched(sourceId);
 
-                updatedOrderMap.put(side, updatedOrders);
+            var updatedRun = new ArrayList<>(run);
+            updatedRun.removeAll(removed);
+            if (!added.isEmpty()) {
+                var position = Collections.binarySearch(updatedRun, added.get(0), sideBook.comparator);
+                updatedRun.add(position < 0 ? -position - 1 : position, added.get(0));
             }
-        } while (!orders.compareAndSet(orderMap, unmodifiableMap(updatedOrderMap)));
+            updated = current.withSide(sideBook.withRunUpdate(sourceId, unmodifiableList(updatedRun), removed, added));
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+
+        metrics.onCasRetries(retries);
+        metrics.onSourceUpdate(levelUpdate.source);
+        recordLatency(Operation.LEVEL_UPDATE, start);
+    }
+
+    // The caller guarantees it is the only thread applying market data to this book, so the compareAndSet only fails
+    // when a reset or an expiry of silent sources was published meanwhile, which must not be overwritten
+    void applyExclusively(MarketData marketData) {
+        validate(marketData);
+
+        var sourceId = sources.idOf(marketData.source);
+        var bidRun = sortedRun(marketData, sourceId, emptyBook.bids);
+        var offerRun = sortedRun(marketData, sourceId, emptyBook.offers);
+        touched(sourceId);
+
+        Book current;
+        Book updated;
+        do {
+            current = book.get();
+            updated = current.withSource(sourceId, bidRun, offerRun);
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+        metrics.onSourceUpdate(marketData.source);
+    }
+
+    /**
+     * Applies the events as if they were handled one by one in iteration order, but publishes a single snapshot.
+     * Nothing is applied when any of the events is invalid.
+     */
+    public void handleMarketDataBatch(Collection<MarketData> batch) {
+        var start = startTime();
+        batch.forEach(this::validate);
+
+        var bidRuns = sortedRuns(batch, emptyBook.bids);
+        var offerRuns = sortedRuns(batch, emptyBook.offers);
+        bidRuns.keySet().forEach(this::touched);
+
+        var retries = -1;
+        Book current;
+        Book updated;
+        do {
+            retries++;
+            current = book.get();
+            updated = current.withSources(bidRuns, offerRuns);
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+
+        metrics.onCasRetries(retries);
+        for (var marketData : batch) metrics.onSourceUpdate(marketData.source);
+        recordLatency(Operation.MARKET_DATA_BATCH, start);
+    }
+
+    // Applies the batch as one publication, the caller guarantees it is the only thread applying market data to this
+    // book, like for applyExclusively
+    void applyBatchExclusively(Collection<MarketData> batch) {
+        batch.forEach(this::validate);
+
+        var bidRuns = sortedRuns(batch, emptyBook.bids);
+        var offerRuns = sortedRuns(batch, emptyBook.offers);
+        bidRuns.keySet().forEach(this::touched);
+
+        Book current;
+        Book updated;
+        do {
+            current = book.get();
+            updated = current.withSources(bidRuns, offerRuns);
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+        for (var marketData : batch) metrics.onSourceUpdate(marketData.source);
+    }
+
+    // Fills a book nothing was published to yet with the events, one per source, as the given version
+    void restore(Collection<MarketData> events, long version) {
+        events.forEach(this::validate);
+
+        var bidRuns = sortedRuns(events, emptyBook.bids);
+        var offerRuns = sortedRuns(events, emptyBook.offers);
+        var restored = emptyBook.withSources(bidRuns, offerRuns).withVersion(version);
+        if (!book.compareAndSet(emptyBook, restored)) throw new IllegalStateException(
+                String.format("Only a new book can be restored, %s is at version %s", instrument, book.get().version)
+        );
+    }
+
+    // the current snapshot, it never changes once published
+    Book snapshot() {
+        return book.get();
     }
 
     public void reset() {
-        orders.set(emptyMap());
+        var start = startTime();
+        var retries = -1;
+        Book current;
+        Book updated;
+        do {
+            retries++;
+            current = book.get();
+            updated = current.cleared(emptyBook);
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+
+        metrics.onCasRetries(retries);
+        recordLatency(Operation.RESET, start);
+    }
+
+    /**
+     * Removes every level of a source once it sent nothing for the time to live, as measured by the wheel, so a silent
+     * feed does not leave stale prices behind. Sources expiring during the same tick of the wheel are removed in one
+     * publication. Sources already in the book count as updated now.
+     */
+    public void expireSilentSources(HashedTimerWheel wheel, Duration timeToLive) {
+        requireNonNull(wheel, "wheel");
+        if (!(timeToLive.toNanos() > 0)) throw new IllegalArgumentException("timeToLive must be positive");
+
+        synchronized (this) {
+            if (sourceExpiry != null) throw new IllegalStateException(String.format("Sources of %s already expire", instrument));
+            sourceExpiry = new SourceExpiry(this, wheel, timeToLive.toNanos());
+        }
+        var current = book.get();
+        for (var side : Side.values()) {
+            var runs = current.side(side).runs();
+            for (int sourceId = 0; sourceId < runs.size(); sourceId++) {
+                if (runs.get(sourceId) != null) touched(sourceId);
+            }
+        }
+    }
+
+    // Removes the sources that are still expired when the removal is published
+    void expireSources(List<Integer> sourceIds, IntPredicate expired) {
+        Book current;
+        Book updated;
+        var removed = new HashMap<Integer, List<Order>>();
+        do {
+            removed.clear();
+            current = book.get();
+            for (int sourceId : sourceIds) {
+                var quoted = !current.bids.run(sourceId).isEmpty() || !current.offers.run(sourceId).isEmpty();
+                if (quoted && expired.test(sourceId)) removed.put(sourceId, List.of());
+            }
+            if (removed.isEmpty()) return;
+
+            updated = current.withSources(removed, removed);
+        } while (!book.compareAndSet(current, updated));
+        published(current, updated);
+        metrics.onSourcesExpired(removed.size());
+    }
+
+    /**
+     * Delivers a {@link BookDelta} for every later change of this book to the listener, on a daemon thread of its own.
+     */
+    public Subscription subscribe(BookListener listener, Subscription.Mode mode) {
+        return subscribe(listener, mode, runnable -> {
+            var thread = new Thread(runnable, "orderbook-listener-" + instrument);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Subscription subscribe(BookListener listener, Subscription.Mode mode, ThreadFactory threadFactory) {
+        requireNonNull(listener, "listener");
+        requireNonNull(mode, "mode");
+
+        var publisher = deltaPublisher;
+        if (publisher == null) {
+            synchronized (this) {
+                publisher = deltaPublisher;
+                if (publisher == null) {
+                    publisher = new DeltaPublisher();
+                    deltaPublisher = publisher;
+                }
+            }
+        }
+        return new Subscription(this, publisher, listener, mode, threadFactory);
+    }
+
+    /**
+     * Version of the current snapshot. It grows with every event or batch that changed the book and with every reset.
+     */
+    public long getVersion() {
+        return book.get().version;
+    }
+
+    /**
+     * Best {@value #TOP_OF_BOOK_LEVELS} aggregated levels of both sides and the version they belong to, read without
+     * any work beyond loading the current snapshot.
+     */
+    public TopOfBook getTopOfBook() {
+        return book.get().topOfBook;
     }
 
     public List<Order> getOrdersBySide(Side side) {
-        return orders.get().getOrDefault(side, emptyList());
+        var start = startTime();
+        var orders = book.get().side(side).orders();
+        recordLatency(Operation.ORDERS_BY_SIDE, start);
+        return orders;
     }
 
     public long getTotalQuantityForPriceAndSide(BigDecimal price, Side side) {
-        return orders.get().getOrDefault(side, emptyList())
-                .stream()
-                .filter(order -> order.priceLevel.price.compareTo(price) == 0)
-                .mapToLong(order -> order.priceLevel.quantity)
-                .sum();
+        var start = startTime();
+        var quantity = book.get().side(side).depth.quantityAt(price);
+        recordLatency(Operation.TOTAL_QUANTITY, start);
+        return quantity;
+    }
+
+    public List<DepthLevel> getDepthBySide(Side side, int levels) {
+        if (levels < 0) throw new IllegalArgumentException("levels must not be negative");
+
+        var start = startTime();
+        var depth = book.get().side(side).depth.levels();
+        var result = depth.size() <= levels ? depth : depth.subList(0, levels);
+        recordLatency(Operation.DEPTH, start);
+        return result;
     }
 
     public BigDecimal getVwapForQuantityAndSide(long quantity, Side side) {
-        var sideOrders = orders.get().getOrDefault(side, emptyList());
+        var start = startTime();
+        var vwap = book.get().side(side).vwapIndex.vwap(quantity);
+        recordLatency(Operation.VWAP, start);
+        return vwap;
+    }
+
+    /**
+     * Average price of filling the quantity by walking the side best price first, taking whole levels and the part of
+     * the last one that is still needed. Empty when the side holds less than the quantity.
+     */
+    public Optional<BigDecimal> getSweepVwapForQuantityAndSide(long quantity, Side side) {
+        if (!(quantity > 0)) throw new IllegalArgumentException("quantity must be positive");
 
-        var count =  sideOrders
-                .stream()
-                .filter(order -> order.priceLevel.quantity == quantity)
-                .count();
+        var start = startTime();
+        var sweep = book.get().side(side).sweep();
+        var level = sweep.levelReaching(quantity);
+        Optional<BigDecimal> vwap = Optional.empty();
+        if (level >= 0) {
+            var notional = sweep.notional(quantity, level);
+            var scale = priceScale == null ? notional.scale() : priceScale.scale();
+            vwap = Optional.of(notional.divide(BigDecimal.valueOf(quantity), scale, RoundingMode.HALF_EVEN));
+        }
+        recordLatency(Operation.SWEEP_VWAP, start);
+        return vwap;
+    }
+
+    /**
+     * Worst price reached when filling the quantity by walking the side best price first. Empty when the side holds
+     * less than the quantity.
+     */
+    public Optional<BigDecimal> getSweepPriceForQuantityAndSide(long quantity, Side side) {
+        if (!(quantity > 0)) throw new IllegalArgumentException("quantity must be positive");
+
+        var start = startTime();
+        var sweep = book.get().side(side).sweep();
+        var level = sweep.levelReaching(quantity);
+        var price = level < 0 ? Optional.<BigDecimal>empty() : Optional.of(sweep.level(level).price);
+        recordLatency(Operation.SWEEP_PRICE, start);
+        return price;
+    }
+
+    private void published(Book previous, Book current) {
+        if (current == previous) return;
+
+        var publisher = deltaPublisher;
+        if (publisher != null) publisher.publish(previous, current);
+        metrics.onPublished(current.version, current.bids.depth.levels().size(), current.offers.depth.levels().size());
+    }
+
+    // called before an update of the source is published, so an expiry that saw the source stale fails its publication
+    private void touched(int sourceId) {
+        var expiry = sourceExpiry;
+        if (expiry != null) expiry.touched(sourceId);
+    }
+
+    private long startTime() {
+        return timed ? System.nanoTime() : 0;
+    }
 
-        if (count == 0) return ZERO;
+    private void recordLatency(Operation operation, long start) {
+        if (timed) metrics.onLatency(operation, System.nanoTime() - start);
+    }
+
+    // orders of a run at the price, adjacent because runs are sorted by price first
+    private List<Order> ordersAt(List<Order> run, BigDecimal price) {
+        var scaledPrice = priceScale == null ? 0 : priceScale.scaledPriceOrUnrepresentable(price);
+        var from = -1;
+        var to = -1;
+        for (int i = 0; i < run.size(); i++) {
+            var order = run.get(i);
+            var samePrice = priceScale == null ? order.priceLevel.price.compareTo(price) == 0 : order.scaledPrice == scaledPrice;
+            if (samePrice && from < 0) from = i;
+            if (samePrice) to = i + 1;
+        }
+        return from < 0 ? List.of() : run.subList(from, to);
+    }
 
-        var dividend = sideOrders
-                .stream()
-                .filter(order -> order.priceLevel.quantity == quantity)
-                .map(order -> order.priceLevel.price.multiply(BigDecimal.valueOf(order.priceLevel.quantity)))
-                .reduce(ZERO, BigDecimal::add);
+    private static void validate(LevelUpdate levelUpdate, List<Order> run, List<Order> ordersAtPrice) {
+        if (levelUpdate.action == ADD && !ordersAtPrice.isEmpty()) throw new IllegalArgumentException(String.format(
+                "%s already quotes %s %s", levelUpdate.source, levelUpdate.side, levelUpdate.price
+        ));
+        if (levelUpdate.action != ADD && ordersAtPrice.isEmpty()) throw new IllegalArgumentException(String.format(
+                "%s does not quote %s %s", levelUpdate.source, levelUpdate.side, levelUpdate.price
+        ));
+        if (levelUpdate.action == ADD && run.size() >= MarketData.MAX_ELEMENTS_PER_SIDE) throw new IllegalArgumentException(String.format(
+                "No more than %s elements for %s side can be specified but the actual amount was %s",
+                MarketData.MAX_ELEMENTS_PER_SIDE, levelUpdate.side, run.size() + 1
+        ));
+    }
 
+    private List<Order> sortedRun(MarketData marketData, int sourceId, SideBook sideBook) {
+        return marketData.priceList.stream()
+                .filter(price -> price.side == sideBook.side)
+                .map(price -> order(marketData.source, sourceId, price))
+                .sorted(sideBook.comparator)
+                .collect(toUnmodifiableList());
+    }
 
-        var divisor = BigDecimal.valueOf(quantity *count);
+    // later events of a source replace earlier ones, like they would when handled one by one
+    private Map<Integer, List<Order>> sortedRuns(Collection<MarketData> batch, SideBook sideBook) {
+        var runs = new HashMap<Integer, List<Order>>();
+        for (var marketData : batch) {
+            var sourceId = sources.idOf(marketData.source);
+            runs.put(sourceId, sortedRun(marketData, sourceId, sideBook));
+        }
+        return runs;
+    }
+
+    private Order order(String source, int sourceId, PriceLevel priceLevel) {
+        if (priceScale == null) return new Order(source, sourceId, priceLevel, 0);
+
+        return new Order(source, sourceId, priceLevel, priceScale.toScaledPrice(priceLevel.price));
+    }
+
+    private SideBook sideBook(Side side) {
+        var comparator = comparator(side, priceScale, sources);
+        if (priceScale == null) {
+            return new SideBook(side, comparator, side == BUY ? DepthLevel.BID_COMPARATOR : DepthLevel.OFFER_COMPARATOR, VwapIndex.decimal());
+        }
+        return new SideBook(side, comparator, side == BUY ? DepthLevel.SCALED_BID_COMPARATOR : DepthLevel.SCALED_OFFER_COMPARATOR, VwapIndex.scaled(priceScale));
+    }
 
-        return dividend.divide(divisor, RoundingMode.HALF_EVEN);
+    // orders the same as BID_COMPARATOR and OFFER_COMPARATOR, but breaks ties on interned source ids
+    static Comparator<Order> comparator(Side side, PriceScale priceScale, SourceRegistry sources) {
+        Comparator<Order> byPrice = priceScale == null
+                ? (order1, order2) -> order1.priceLevel.price.compareTo(order2.priceLevel.price)
+                : (order1, order2) -> Long.compare(order1.scaledPrice, order2.scaledPrice);
+        return (side == BUY ? byPrice.reversed() : byPrice)
+                .thenComparing((order1, order2) -> Long.compare(order2.priceLevel.quantity, order1.priceLevel.quantity))
+                .thenComparing((order1, order2) -> sources.compare(order1.sourceId, order2.sourceId));
     }
 
-    private void validate(MarketData marketData) {
+    void validate(MarketData marketData) {
         if (!instrument.equals(marketData.instrument)) throw new IllegalArgumentException(
                 String.format("Incorrect instrument, %s required, but %s provided", instrument, marketData.instrument)
         );
@@ -0,0 +1,43 @@
+package orderbook;
+
+/**
+ * Instrumentation hooks of {@link OrderBook}, called on the thread doing the work, so implementations have to be
+ * thread-safe and cheap. {@link #NO_OP} is the default, with it a book does not even read the clock.
+ * {@link MetricsRecorder} is a lock-free implementation.
+ */
+public interface OrderBookMetrics {
+
+    OrderBookMetrics NO_OP = new OrderBookMetrics() {
+    };
+
+    enum Operation {
+        MARKET_DATA_EVENT,
+        MARKET_DATA_BATCH,
+        LEVEL_UPDATE,
+        RESET,
+        ORDERS_BY_SIDE,
+        TOTAL_QUANTITY,
+        DEPTH,
+        VWAP,
+        SWEEP_VWAP,
+        SWEEP_PRICE
+    }
+
+    default void onLatency(Operation operation, long nanos) {
+    }
+
+    // failed compareAndSet attempts of one update, zero when it was published at the first attempt
+    default void onCasRetries(int retries) {
+    }
+
+    default void onSourceUpdate(String source) {
+    }
+
+    // sources removed by one publication because they were silent for their time to live
+    default void onSourcesExpired(int sources) {
+    }
+
+    // levels of both sides of the snapshot that was just published
+    default void onPublished(long version, int bidLevels, int offerLevels) {
+    }
+}
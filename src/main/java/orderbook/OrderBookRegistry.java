@@ -0,0 +1,200 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.Side;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Routes a mixed stream of {@link MarketData} to one {@link OrderBook} per instrument. Instruments are spread over a
+ * fixed number of shards by hash, and each shard has one worker thread that is the only writer of its books, so
+ * instruments on different shards never contend and books on the same shard are updated without compare-and-set
+ * retries, other than after an expiry of silent sources. Books are created lazily by the worker on the first event of
+ * their instrument, an event whose book cannot be created is counted as rejected.
+ * <p>
+ * Worker threads come from the shard thread factory, which is where a deployment pins them to cores.
+ */
+public class OrderBookRegistry implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 1_000;
+
+    private final Function<String, OrderBook> bookFactory;
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    private final Shard[] shards;
+    private final AtomicInteger eventsInFlight = new AtomicInteger();
+    private volatile boolean closed;
+    // set once no event is being handed over any more, the workers stop after draining their queues then
+    private volatile boolean stopped;
+
+    public OrderBookRegistry(int shards, int queueCapacity) {
+        this(shards, queueCapacity, OrderBook::new, shard -> runnable -> {
+            var thread = new Thread(runnable, "orderbook-shard-" + shard);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public OrderBookRegistry(int shards, int queueCapacity, Function<String, OrderBook> bookFactory, IntFunction<ThreadFactory> shardThreadFactory) {
+        if (!(shards > 0)) throw new IllegalArgumentException("shards must be positive");
+
+        this.bookFactory = requireNonNull(bookFactory, "bookFactory");
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, queueCapacity, shardThreadFactory.apply(i));
+        }
+    }
+
+    /**
+     * Hands the event to the shard of its instrument, waiting while that shard's queue is full.
+     */
+    public void handleMarketDataEvent(MarketData marketData) {
+        var shard = shards[shardOf(marketData.instrument)];
+        eventsInFlight.incrementAndGet();
+        try {
+            if (closed) throw new IllegalStateException("Closed");
+
+            while (!shard.queue.offer(marketData)) {
+                if (closed) throw new IllegalStateException("Closed");
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+        } finally {
+            eventsInFlight.decrementAndGet();
+        }
+        if (shard.workerParked) LockSupport.unpark(shard.worker);
+    }
+
+    public Optional<OrderBook> getOrderBook(String instrument) {
+        return Optional.ofNullable(books.get(instrument));
+    }
+
+    public Set<String> getInstruments() {
+        return unmodifiableSet(books.keySet());
+    }
+
+    // best aggregated level of every instrument that has any order on the side
+    public Map<String, DepthLevel> getBestLevelsBySide(Side side) {
+        var bestLevels = new HashMap<String, DepthLevel>();
+        books.forEach((instrument, book) -> book.getTopOfBook().best(side).ifPresent(level -> bestLevels.put(instrument, level)));
+        return unmodifiableMap(bestLevels);
+    }
+
+    public List<ShardMetrics> getShardMetrics() {
+        var metrics = new ArrayList<ShardMetrics>(shards.length);
+        for (var shard : shards) {
+            metrics.add(new ShardMetrics(shard.index, shard.bookCount.get(), shard.applied.get(), shard.rejected.get(), shard.queue.size()));
+        }
+        return metrics;
+    }
+
+    int shardOf(String instrument) {
+        var hash = instrument.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Stops accepting events, waits for every shard to apply what is already queued and stops the workers.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // an event that got past the closed check is queued before the workers are told to stop
+        while (eventsInFlight.get() > 0) Thread.onSpinWait();
+        stopped = true;
+        for (var shard : shards) LockSupport.unpark(shard.worker);
+        try {
+            for (var shard : shards) shard.worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class ShardMetrics {
+        public final int shard;
+        public final long books;
+        public final long appliedEvents;
+        public final long rejectedEvents;
+        public final int queuedEvents;
+
+        ShardMetrics(int shard, long books, long appliedEvents, long rejectedEvents, int queuedEvents) {
+            this.shard = shard;
+            this.books = books;
+            this.appliedEvents = appliedEvents;
+            this.rejectedEvents = rejectedEvents;
+            this.queuedEvents = queuedEvents;
+        }
+
+        @Override
+        public String toString() {
+            return "ShardMetrics{" +
+                    "shard=" + shard +
+                    ", books=" + books +
+                    ", appliedEvents=" + appliedEvents +
+                    ", rejectedEvents=" + rejectedEvents +
+                    ", queuedEvents=" + queuedEvents +
+                    '}';
+        }
+    }
+
+    private final class Shard {
+        final int index;
+        final MpscArrayQueue<MarketData> queue;
+        final Thread worker;
+        final AtomicLong bookCount = new AtomicLong();
+        final AtomicLong applied = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        volatile boolean workerParked;
+
+        Shard(int index, int queueCapacity, ThreadFactory threadFactory) {
+            this.index = index;
+            this.queue = new MpscArrayQueue<>(queueCapacity);
+            this.worker = threadFactory.newThread(this::work);
+            this.worker.start();
+        }
+
+        private void work() {
+            while (true) {
+                var marketData = queue.poll();
+                if (marketData != null) {
+                    apply(marketData);
+                } else if (stopped && queue.isEmpty()) {
+                    return;
+                } else {
+                    workerParked = true;
+                    if (queue.isEmpty() && !stopped) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    workerParked = false;
+                }
+            }
+        }
+
+        private void apply(MarketData marketData) {
+            try {
+                var book = books.computeIfAbsent(marketData.instrument, instrument -> {
+                    var created = bookFactory.apply(instrument);
+                    bookCount.incrementAndGet();
+                    return created;
+                });
+                book.applyExclusively(marketData);
+                applied.incrementAndGet();
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.unmodifiableMap;
+import static orderbook.JournalCursor.LEVEL_BYTES;
+
+/**
+ * Binary snapshot of the content of many books, each with its version, and of the journal sequence it is consistent
+ * with. Every book is read from its current published snapshot, so writers keep going while it is taken, and the file
+ * is written and read through a single mapping of its exact size.
+ * <p>
+ * A cold start reads the latest snapshot and replays the journal after {@link #journalSequence}, see
+ * {@link JournalReplay#replay(Path, OrderBook, long, long)}.
+ * <p>
+ * After a header of magic, format version, journal sequence and book count, every book is laid out as
+ * <pre>
+ * short instrument bytes, instrument, long version, int source count,
+ * source count times (short source bytes, source, short level count, levels as in the journal)
+ * </pre>
+ */
+public class OrderBookSnapshot {
+
+    private static final int MAGIC = 0x4F42534E;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final Side[] SIDES = Side.values();
+    private static final Set<PosixFilePermission> DEFAULT_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    public final long journalSequence;
+    public final Map<String, OrderBook> books;
+
+    private OrderBookSnapshot(long journalSequence, Map<String, OrderBook> books) {
+        this.journalSequence = journalSequence;
+        this.books = books;
+    }
+
+    /**
+     * Writes the books to a uniquely named temporary file next to the path and moves it over the path once complete.
+     * On POSIX file systems the snapshot keeps the permissions of the file it replaces, a new one is readable by all
+     * and writable by the owner.
+     */
+    public static void write(Path path, Collection<OrderBook> orderBooks, long journalSequence) throws IOException {
+        var books = new ArrayList<BookContent>(orderBooks.size());
+        var size = (long) HEADER_BYTES;
+        for (var orderBook : orderBooks) {
+            var content = new BookContent(orderBook);
+            books.add(content);
+            size += content.size;
+        }
+
+        // a unique name, so concurrent writers of the same path never share or delete each other's file
+        var directory = path.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            // temporary files are only accessible to the owner, which would otherwise carry over to the snapshot
+            if (temporary.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temporary, Files.exists(path) ? Files.getPosixFilePermissions(path) : DEFAULT_PERMISSIONS);
+            }
+            try (var channel = FileChannel.open(temporary, READ, WRITE)) {
+                var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(journalSequence).putInt(books.size());
+                for (var book : books) book.writeTo(buffer);
+                buffer.force();
+            }
+            Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Restores every book of the snapshot into a new book from the factory, at the version it was taken at.
+     */
+    public static OrderBookSnapshot read(Path path, Function<String, OrderBook> bookFactory) throws IOException {
+        try (var channel = FileChannel.open(path, READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) throw new IOException("Not an order book snapshot");
+            var formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) throw new IOException("Unsupported snapshot format version " + formatVersion);
+
+            var journalSequence = buffer.getLong();
+            var bookCount = buffer.getInt();
+            var books = new LinkedHashMap<String, OrderBook>();
+            for (int i = 0; i < bookCount; i++) {
+                var orderBook = readBook(buffer, bookFactory);
+                books.put(orderBook.getInstrument(), orderBook);
+            }
+            return new OrderBookSnapshot(journalSequence, unmodifiableMap(books));
+        }
+    }
+
+    private static OrderBook readBook(ByteBuffer buffer, Function<String, OrderBook> bookFactory) {
+        var instrument = string(buffer);
+        var version = buffer.getLong();
+        var sourceCount = buffer.getInt();
+
+        var events = new ArrayList<MarketData>(sourceCount);
+        for (int i = 0; i < sourceCount; i++) {
+            var source = string(buffer);
+            var levelCount = buffer.getShort();
+            var priceList = new ArrayList<PriceLevel>(levelCount);
+            for (int level = 0; level < levelCount; level++) {
+                var side = SIDES[buffer.get()];
+                var scale = buffer.getInt();
+                var price = BigDecimal.valueOf(buffer.getLong(), scale);
+                priceList.add(new PriceLevel(price, buffer.getLong(), side));
+            }
+            events.add(new MarketData(source, instrument, priceList));
+        }
+
+        var orderBook = bookFactory.apply(instrument);
+        orderBook.restore(events, version);
+        return orderBook;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    // one published snapshot of a book, with the orders of every source gathered from both sides
+    private static final class BookContent {
+        final byte[] instrument;
+        final long version;
+        final List<byte[]> sources = new ArrayList<>();
+        final List<List<Order>> orders = new ArrayList<>();
+        final long size;
+
+        BookContent(OrderBook orderBook) {
+            var book = orderBook.snapshot();
+            this.instrument = orderBook.getInstrument().getBytes(UTF_8);
+            this.version = book.version;
+
+            var bidRuns = book.bids.runs();
+            var offerRuns = book.offers.runs();
+            var size = (long) Short.BYTES + instrument.length + Long.BYTES + Integer.BYTES;
+            for (int sourceId = 0; sourceId < Math.max(bidRuns.size(), offerRuns.size()); sourceId++) {
+                var sourceOrders = new ArrayList<Order>();
+                if (sourceId < bidRuns.size() && bidRuns.get(sourceId) != null) sourceOrders.addAll(bidRuns.get(sourceId));
+                if (sourceId < offerRuns.size() && offerRuns.get(sourceId) != null) sourceOrders.addAll(offerRuns.get(sourceId));
+                if (sourceOrders.isEmpty()) continue;
+
+                var source = sourceOrders.get(0).source.getBytes(UTF_8);
+                sources.add(source);
+                orders.add(sourceOrders);
+                size += Short.BYTES + source.length + Short.BYTES + (long) sourceOrders.size() * LEVEL_BYTES;
+            }
+            this.size = size;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putShort((short) instrument.length).put(instrument).putLong(version).putInt(sources.size());
+            for (int i = 0; i < sources.size(); i++) {
+                buffer.putShort((short) sources.get(i).length).put(sources.get(i)).putShort((short) orders.get(i).size());
+                for (var order : orders.get(i)) {
+                    var price = order.priceLevel.price;
+                    buffer.put((byte) order.priceLevel.side.ordinal())
+                            .putInt(price.scale())
+                            .putLong(unscaled(price))
+                            .putLong(order.priceLevel.quantity);
+                }
+            }
+        }
+
+        private static long unscaled(BigDecimal price) {
+            try {
+                return price.unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException(String.format("Price %s does not fit the snapshot encoding", price), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package orderbook;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point price representation of an instrument. Prices are stored as longs counting units of
+ * {@code 10^-scale}, and every price has to be a multiple of {@code tickSize} units.
+ */
+public final class PriceScale {
+
+    static final long UNREPRESENTABLE = Long.MIN_VALUE;
+
+    private final int scale;
+    private final long tickSize;
+
+    private PriceScale(int scale, long tickSize) {
+        if (scale < 0) throw new IllegalArgumentException("scale must not be negative");
+        if (!(tickSize > 0)) throw new IllegalArgumentException("tickSize must be positive");
+
+        this.scale = scale;
+        this.tickSize = tickSize;
+    }
+
+    public static PriceScale of(int scale) {
+        return new PriceScale(scale, 1);
+    }
+
+    public static PriceScale of(int scale, long tickSize) {
+        return new PriceScale(scale, tickSize);
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public long tickSize() {
+        return tickSize;
+    }
+
+    public long toScaledPrice(BigDecimal price) {
+        var scaledPrice = scaledPriceOrUnrepresentable(price);
+        if (scaledPrice == UNREPRESENTABLE) throw new IllegalArgumentException(String.format(
+                "Price %s is not a multiple of %s with scale %s", price, tickSize, scale
+        ));
+        return scaledPrice;
+    }
+
+    public BigDecimal toPrice(long scaledPrice) {
+        return BigDecimal.valueOf(scaledPrice, scale);
+    }
+
+    long scaledPriceOrUnrepresentable(BigDecimal price) {
+        try {
+            var scaledPrice = price.movePointRight(scale).longValueExact();
+            return scaledPrice % tickSize == 0 ? scaledPrice : UNREPRESENTABLE;
+        } catch (ArithmeticException e) {
+            return UNREPRESENTABLE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PriceScale{" +
+                "scale=" + scale +
+                ", tickSize=" + tickSize +
+                '}';
+    }
+}
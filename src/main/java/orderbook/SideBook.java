@@ -0,0 +1,190 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Immutable state of one side of the book. Every source keeps its own run of orders, already sorted with the side
+ * comparator, so an update only replaces that source's run. Runs are indexed by interned source id. They are merged
+ * into one sorted list the first time a reader asks for it and the result is cached for the lifetime of this instance.
+ */
+final class SideBook {
+
+    final Side side;
+    final Comparator<Order> comparator;
+    final Depth depth;
+    final VwapIndex vwapIndex;
+    // run of every source id, null for sources without orders on this side
+    private final List<List<Order>> runs;
+    private final int runCount;
+    private volatile List<Order> orders;
+    private volatile Sweep sweep;
+
+    SideBook(Side side, Comparator<Order> comparator, Comparator<DepthLevel> depthComparator, VwapIndex vwapIndex) {
+        this(side, comparator, new Depth(depthComparator), vwapIndex, emptyList(), 0);
+    }
+
+    private SideBook(Side side, Comparator<Order> comparator, Depth depth, VwapIndex vwapIndex, List<List<Order>> runs, int runCount) {
+        this.side = side;
+        this.comparator = comparator;
+        this.depth = depth;
+        this.vwapIndex = vwapIndex;
+        this.runs = runs;
+        this.runCount = runCount;
+    }
+
+    SideBook withRun(int sourceId, List<Order> run) {
+        return withRuns(Map.of(sourceId, run));
+    }
+
+    // an empty run removes the source from this side
+    SideBook withRuns(Map<Integer, List<Order>> runsBySourceId) {
+        var updatedRuns = new ArrayList<>(runs);
+        var updatedRunCount = runCount;
+        var previousRuns = new ArrayList<List<Order>>(runsBySourceId.size());
+        var newRuns = new ArrayList<List<Order>>(runsBySourceId.size());
+        for (var entry : runsBySourceId.entrySet()) {
+            int sourceId = entry.getKey();
+            var run = entry.getValue();
+            while (updatedRuns.size() <= sourceId) updatedRuns.add(null);
+
+            var previousRun = updatedRuns.set(sourceId, run.isEmpty() ? null : run);
+            if (previousRun != null) {
+                previousRuns.add(previousRun);
+                updatedRunCount--;
+            }
+            if (!run.isEmpty()) {
+                newRuns.add(run);
+                updatedRunCount++;
+            }
+        }
+        if (previousRuns.isEmpty() && newRuns.isEmpty()) return this;
+
+        return new SideBook(
+                side,
+                comparator,
+                depth.replace(previousRuns, newRuns),
+                vwapIndex.replace(previousRuns, newRuns),
+                unmodifiableList(updatedRuns),
+                updatedRunCount
+        );
+    }
+
+    // replaces the run of the source with one that differs from it only by the removed and added orders. Only those
+    // orders are aggregated, which saves sorting the run and aggregating its unchanged orders again, but the side is
+    // still copied on write like by withRun: the runs list is copied, O(sources), the depth copies its price index and
+    // level list, O(distinct prices), and the VWAP index copies its buckets, O(distinct quantities)
+    SideBook withRunUpdate(int sourceId, List<Order> run, List<Order> removed, List<Order> added) {
+        var updatedRuns = new ArrayList<>(runs);
+        while (updatedRuns.size() <= sourceId) updatedRuns.add(null);
+
+        var previousRun = updatedRuns.set(sourceId, run.isEmpty() ? null : run);
+        var updatedRunCount = runCount - (previousRun == null ? 0 : 1) + (run.isEmpty() ? 0 : 1);
+        var removedRuns = removed.isEmpty() ? List.<List<Order>>of() : List.of(removed);
+        var addedRuns = added.isEmpty() ? List.<List<Order>>of() : List.of(added);
+        return new SideBook(
+                side,
+                comparator,
+                depth.replace(removedRuns, addedRuns),
+                vwapIndex.replace(removedRuns, addedRuns),
+                unmodifiableList(updatedRuns),
+                updatedRunCount
+        );
+    }
+
+    // the run of the source, empty when it has no orders on this side
+    List<Order> run(int sourceId) {
+        var run = sourceId < runs.size() ? runs.get(sourceId) : null;
+        return run == null ? emptyList() : run;
+    }
+
+    // run of every source id, null for sources without orders on this side
+    List<List<Order>> runs() {
+        return runs;
+    }
+
+    // runs of the sources whose runs differ from the previous version of this side, as they were and as they are
+    List<List<Order>> changedRuns(SideBook previous) {
+        var changed = new ArrayList<List<Order>>();
+        for (int sourceId = 0; sourceId < Math.max(runs.size(), previous.runs.size()); sourceId++) {
+            var run = sourceId < runs.size() ? runs.get(sourceId) : null;
+            var previousRun = sourceId < previous.runs.size() ? previous.runs.get(sourceId) : null;
+            if (run == previousRun) continue;
+
+            if (previousRun != null) changed.add(previousRun);
+            if (run != null) changed.add(run);
+        }
+        return changed;
+    }
+
+    // built the first time a sweep query reads this side, like the merged orders
+    Sweep sweep() {
+        var built = sweep;
+        if (built == null) {
+            built = new Sweep(depth.levels());
+            sweep = built;
+        }
+        return built;
+    }
+
+    List<Order> orders() {
+        var merged = orders;
+        if (merged == null) {
+            merged = merge(runs, runCount, comparator);
+            orders = merged;
+        }
+        return merged;
+    }
+
+    private static List<Order> merge(List<List<Order>> runs, int runCount, Comparator<Order> comparator) {
+        if (runCount == 0) return emptyList();
+
+        var size = 0;
+        var cursors = new PriorityQueue<Cursor>(runCount, (cursor1, cursor2) -> comparator.compare(cursor1.head(), cursor2.head()));
+        for (var run : runs) {
+            if (run == null) continue;
+            if (runCount == 1) return run;
+
+            size += run.size();
+            cursors.add(new Cursor(run));
+        }
+
+        var merged = new Order[size];
+        for (int i = 0; i < size; i++) {
+            var cursor = cursors.poll();
+            merged[i] = cursor.next();
+            if (cursor.hasNext()) cursors.add(cursor);
+        }
+        return unmodifiableList(Arrays.asList(merged));
+    }
+
+    private static final class Cursor {
+        private final List<Order> run;
+        private int position;
+
+        private Cursor(List<Order> run) {
+            this.run = run;
+        }
+
+        Order head() {
+            return run.get(position);
+        }
+
+        Order next() {
+            return run.get(position++);
+        }
+
+        boolean hasNext() {
+            return position < run.size();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Ingress that funnels market data from any number of producer threads through a bounded lock-free queue to one
+ * applier thread, which is then the only writer of the wrapped {@link OrderBook} and publishes every update without
+ * compare-and-set retries, except when an expiry of silent sources was published meanwhile. Readers keep querying the
+ * wrapped book directly.
+ * <p>
+ * The wrapped book must not be written to by anything else while this ingress is open.
+ */
+public class SingleWriterOrderBook implements AutoCloseable {
+
+    public enum BackPressure {
+        // wait until the applier frees a slot
+        BLOCK,
+        // replace the newest pending event of the same source, reject if the source has nothing pending
+        DROP_OLDEST_PER_SOURCE,
+        // refuse the event
+        REJECT
+    }
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 1_000;
+
+    private final OrderBook orderBook;
+    private final BackPressure backPressure;
+    private final MpscArrayQueue<Pending> queue;
+    private final ConcurrentHashMap<String, Pending> pendingBySource = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Thread applier;
+    private volatile boolean applierParked;
+    private volatile boolean closed;
+
+    public SingleWriterOrderBook(OrderBook orderBook, int capacity, BackPressure backPressure) {
+        this(orderBook, capacity, backPressure, runnable -> {
+            var thread = new Thread(runnable, "orderbook-applier-" + orderBook.getInstrument());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SingleWriterOrderBook(OrderBook orderBook, int capacity, BackPressure backPressure, ThreadFactory threadFactory) {
+        this.orderBook = requireNonNull(orderBook, "orderBook");
+        this.backPressure = requireNonNull(backPressure, "backPressure");
+        this.queue = new MpscArrayQueue<>(capacity);
+        this.applier = threadFactory.newThread(this::applyLoop);
+        this.applier.start();
+    }
+
+    public OrderBook orderBook() {
+        return orderBook;
+    }
+
+    /**
+     * Hands the event over to the applier, returns {@code false} when the back-pressure policy refused it.
+     */
+    public boolean offer(MarketData marketData) {
+        return enqueue(marketData) != null;
+    }
+
+    /**
+     * Hands the event over to the applier. The future completes once the event, or a later event of the same source
+     * that replaced it, has been published, and fails with {@link RejectedExecutionException} when the back-pressure
+     * policy refused it.
+     */
+    public CompletableFuture<Void> submit(MarketData marketData) {
+        var pending = enqueue(marketData);
+        if (pending == null) return CompletableFuture.failedFuture(new RejectedExecutionException(
+                String.format("Queue full, %s from %s rejected", marketData.instrument, marketData.source)
+        ));
+        return pending.applied;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Stops accepting events, waits for the applier to publish everything already queued and stops it. An event that
+     * raced with closing and was not published fails its future with {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(applier);
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (Pending pending; (pending = queue.poll()) != null; ) withdraw(pending);
+    }
+
+    private Pending enqueue(MarketData marketData) {
+        if (closed) throw new IllegalStateException("Closed");
+        orderBook.validate(marketData);
+
+        var pending = new Pending(marketData);
+        while (!queue.offer(pending)) {
+            switch (backPressure) {
+                case BLOCK:
+                    if (closed) throw new IllegalStateException("Closed");
+                    LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                    break;
+                case DROP_OLDEST_PER_SOURCE:
+                    var newest = pendingBySource.get(marketData.source);
+                    if (newest == null) return reject();
+                    if (newest.replace(marketData)) {
+                        dropped.incrementAndGet();
+                        return checkOpen(newest);
+                    }
+                    // already taken by the applier, which has freed a slot
+                    pendingBySource.remove(marketData.source, newest);
+                    break;
+                case REJECT:
+                    return reject();
+            }
+        }
+
+        if (backPressure == BackPressure.DROP_OLDEST_PER_SOURCE) pendingBySource.put(marketData.source, pending);
+        if (applierParked) LockSupport.unpark(applier);
+        return checkOpen(pending);
+    }
+
+    // the applier may have seen the queue empty after closing but before the event was queued, then it never applies it
+    private Pending checkOpen(Pending pending) {
+        if (closed && withdraw(pending)) throw new IllegalStateException("Closed");
+        return pending;
+    }
+
+    // fails the pending event unless the applier has taken it already
+    private boolean withdraw(Pending pending) {
+        var marketData = pending.marketData.getAndSet(null);
+        if (marketData == null) return false;
+
+        pendingBySource.remove(marketData.source, pending);
+        pending.applied.completeExceptionally(new RejectedExecutionException(
+                String.format("Closed, %s from %s not applied", marketData.instrument, marketData.source)
+        ));
+        return true;
+    }
+
+    private Pending reject() {
+        rejected.incrementAndGet();
+        return null;
+    }
+
+    private void applyLoop() {
+        while (true) {
+            var pending = queue.poll();
+            if (pending != null) {
+                apply(pending);
+            } else if (closed && queue.isEmpty()) {
+                return;
+            } else {
+                applierParked = true;
+                if (queue.isEmpty() && !closed) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                applierParked = false;
+            }
+        }
+    }
+
+    private void apply(Pending pending) {
+        var marketData = pending.marketData.getAndSet(null);
+        // withdrawn by a producer that saw the ingress closed
+        if (marketData == null) return;
+
+        pendingBySource.remove(marketData.source, pending);
+        try {
+            orderBook.applyExclusively(marketData);
+            pending.applied.complete(null);
+        } catch (RuntimeException e) {
+            pending.applied.completeExceptionally(e);
+        }
+    }
+
+    private static final class Pending {
+        final AtomicReference<MarketData> marketData;
+        final CompletableFuture<Void> applied = new CompletableFuture<>();
+
+        Pending(MarketData marketData) {
+            this.marketData = new AtomicReference<>(marketData);
+        }
+
+        boolean replace(MarketData replacement) {
+            while (true) {
+                var current = marketData.get();
+                if (current == null) return false;
+                if (marketData.compareAndSet(current, replacement)) return true;
+            }
+        }
+    }
+}
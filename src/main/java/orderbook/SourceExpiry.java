@@ -0,0 +1,98 @@
+package orderbook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Time to live of the sources of one {@link OrderBook}. An update only stores the wheel time for its source and arms
+ * the source's timeout when it is not pending already, so every source has at most one timeout in the wheel. A timeout
+ * that finds a later update schedules itself again for the new deadline, otherwise the source is collected and all
+ * sources collected during a tick are evicted from the book together.
+ */
+final class SourceExpiry {
+
+    private final OrderBook orderBook;
+    private final HashedTimerWheel wheel;
+    private final long timeToLiveNanos;
+    private volatile SourceTimeout[] timeouts = new SourceTimeout[0];
+    // wheel thread only
+    private final List<Integer> expired = new ArrayList<>();
+
+    SourceExpiry(OrderBook orderBook, HashedTimerWheel wheel, long timeToLiveNanos) {
+        this.orderBook = orderBook;
+        this.wheel = wheel;
+        this.timeToLiveNanos = timeToLiveNanos;
+    }
+
+    void touched(int sourceId) {
+        var timeout = timeout(sourceId);
+        var now = wheel.time();
+        timeout.lastUpdateNanos = now;
+        if (!timeout.armed.get() && timeout.armed.compareAndSet(false, true)) wheel.schedule(timeout, now + timeToLiveNanos);
+    }
+
+    boolean isExpired(int sourceId) {
+        var current = timeouts;
+        return sourceId < current.length && current[sourceId] != null && current[sourceId].isExpired(wheel.time());
+    }
+
+    private SourceTimeout timeout(int sourceId) {
+        var current = timeouts;
+        if (sourceId < current.length && current[sourceId] != null) return current[sourceId];
+
+        synchronized (this) {
+            current = timeouts;
+            if (sourceId >= current.length) current = Arrays.copyOf(current, Math.max(sourceId + 1, 2 * current.length));
+            if (current[sourceId] == null) {
+                current[sourceId] = new SourceTimeout(sourceId);
+                timeouts = current;
+            }
+            return current[sourceId];
+        }
+    }
+
+    private void collect(int sourceId) {
+        if (expired.isEmpty()) wheel.afterTick(this::evict);
+        expired.add(sourceId);
+    }
+
+    private void evict() {
+        try {
+            orderBook.expireSources(expired, this::isExpired);
+        } finally {
+            expired.clear();
+        }
+    }
+
+    private final class SourceTimeout extends HashedTimerWheel.Timeout {
+        final int sourceId;
+        final AtomicBoolean armed = new AtomicBoolean();
+        volatile long lastUpdateNanos;
+
+        SourceTimeout(int sourceId) {
+            this.sourceId = sourceId;
+        }
+
+        boolean isExpired(long nowNanos) {
+            return nowNanos - lastUpdateNanos >= timeToLiveNanos;
+        }
+
+        @Override
+        void expire(long nowNanos) {
+            if (!isExpired(nowNanos)) {
+                wheel.schedule(this, lastUpdateNanos + timeToLiveNanos);
+                return;
+            }
+
+            armed.set(false);
+            // an update between the check and disarming did not arm the timeout again
+            if (!isExpired(nowNanos) && armed.compareAndSet(false, true)) {
+                wheel.schedule(this, lastUpdateNanos + timeToLiveNanos);
+                return;
+            }
+            collect(sourceId);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package orderbook;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns source strings to dense int ids, assigned in order of first appearance and never reused. Every id also has
+ * a rank, its position among all registered sources in lexical order, so ids compare like their strings without
+ * touching them. Registering a source copies the tables, lookups and comparisons are lock-free.
+ */
+final class SourceRegistry {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Tables tables = new Tables(new String[0], new int[0], new int[0]);
+
+    int idOf(String source) {
+        var id = ids.get(source);
+        return id != null ? id : register(source);
+    }
+
+    String source(int id) {
+        return tables.sources[id];
+    }
+
+    // the array is never modified, a reference taken after an id was assigned keeps resolving that id
+    String[] sources() {
+        return tables.sources;
+    }
+
+    // same sign as comparing the source strings, ranks shift as sources are added but never change their order
+    int compare(int id1, int id2) {
+        var ranks = tables.ranks;
+        return Integer.compare(ranks[id1], ranks[id2]);
+    }
+
+    int size() {
+        return tables.sources.length;
+    }
+
+    private synchronized int register(String source) {
+        var existingId = ids.get(source);
+        if (existingId != null) return existingId;
+
+        var current = tables;
+        var id = current.sources.length;
+        var rank = rankOf(current, source);
+
+        var sources = Arrays.copyOf(current.sources, id + 1);
+        sources[id] = source;
+
+        var ranks = Arrays.copyOf(current.ranks, id + 1);
+        for (int other = 0; other < id; other++) {
+            if (ranks[other] >= rank) ranks[other]++;
+        }
+        ranks[id] = rank;
+
+        var idsByRank = new int[id + 1];
+        System.arraycopy(current.idsByRank, 0, idsByRank, 0, rank);
+        idsByRank[rank] = id;
+        System.arraycopy(current.idsByRank, rank, idsByRank, rank + 1, id - rank);
+
+        // the tables must be published before the id can be looked up
+        tables = new Tables(sources, ranks, idsByRank);
+        ids.put(source, id);
+        return id;
+    }
+
+    private static int rankOf(Tables tables, String source) {
+        var low = 0;
+        var high = tables.idsByRank.length;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (tables.sources[tables.idsByRank[middle]].compareTo(source) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Tables {
+        final String[] sources;
+        final int[] ranks;
+        final int[] idsByRank;
+
+        Tables(String[] sources, int[] ranks, int[] idsByRank) {
+            this.sources = sources;
+            this.ranks = ranks;
+            this.idsByRank = idsByRank;
+        }
+    }
+}
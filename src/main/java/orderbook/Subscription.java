@@ -0,0 +1,118 @@
+package orderbook;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivery of the deltas of one {@link OrderBook} to one {@link BookListener}. The subscription has its own dispatcher
+ * thread reading the book's delta ring, so a slow listener only ever delays itself: the book keeps publishing and the
+ * listener is told about the deltas it was too slow to read.
+ */
+public class Subscription implements AutoCloseable {
+
+    public enum Mode {
+        // only deltas that changed the best TOP_OF_BOOK_LEVELS levels of either side
+        TOP_OF_BOOK,
+        FULL_DEPTH
+    }
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final OrderBook orderBook;
+    private final DeltaPublisher publisher;
+    private final BookListener listener;
+    private final Mode mode;
+    private final Thread dispatcher;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long nextVersion;
+    private volatile boolean dispatcherParked;
+    private volatile boolean closed;
+
+    Subscription(OrderBook orderBook, DeltaPublisher publisher, BookListener listener, Mode mode, ThreadFactory threadFactory) {
+        this.orderBook = orderBook;
+        this.publisher = publisher;
+        this.listener = listener;
+        this.mode = mode;
+        this.dispatcher = threadFactory.newThread(this::dispatch);
+
+        // joining the publisher first guarantees that every version after the one read here gets a delta
+        publisher.add(this);
+        this.nextVersion = orderBook.getVersion() + 1;
+        this.dispatcher.start();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    // deltas overwritten before the dispatcher read them
+    public long getLostCount() {
+        return lost.get();
+    }
+
+    // deltas the listener threw on
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Stops delivery and waits for a delta being delivered to finish, unless called from the listener itself.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        publisher.remove(this);
+        LockSupport.unpark(dispatcher);
+        if (Thread.currentThread() == dispatcher) return;
+
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void wake() {
+        if (dispatcherParked) LockSupport.unpark(dispatcher);
+    }
+
+    private void dispatch() {
+        while (!closed) {
+            var delta = publisher.get(nextVersion);
+            if (delta != null && delta.version == nextVersion) {
+                nextVersion++;
+                if (mode == Mode.FULL_DEPTH || delta.topOfBookChanged) deliver(delta);
+            } else if (delta != null && delta.version > nextVersion) {
+                var topOfBook = orderBook.getTopOfBook();
+                lost.addAndGet(topOfBook.version + 1 - nextVersion);
+                nextVersion = topOfBook.version + 1;
+                try {
+                    listener.onDeltasLost(topOfBook);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+            } else {
+                dispatcherParked = true;
+                if (!ready() && !closed) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                dispatcherParked = false;
+            }
+        }
+    }
+
+    private boolean ready() {
+        var delta = publisher.get(nextVersion);
+        return delta != null && delta.version >= nextVersion;
+    }
+
+    private void deliver(BookDelta delta) {
+        try {
+            listener.onBookChange(delta);
+            delivered.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+        }
+    }
+}
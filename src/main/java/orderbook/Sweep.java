@@ -0,0 +1,69 @@
+package orderbook;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static java.math.BigDecimal.ZERO;
+
+/**
+ * Immutable prefix sums of quantity and notional over the depth of one side, best price first, so the level where a
+ * cumulative quantity is reached is found with a binary search. The sums stop at the level where the cumulative
+ * quantity reaches {@link Long#MAX_VALUE}, no quantity reaches a level past it, so every sum before the last one is
+ * exact.
+ */
+final class Sweep {
+
+    private final List<DepthLevel> levels;
+    // totals of every level up to and including the one at the same index
+    private final long[] quantities;
+    private final BigDecimal[] notionals;
+    // levels up to and including the first whose total is Long.MAX_VALUE
+    private final int reachable;
+
+    Sweep(List<DepthLevel> levels) {
+        this.levels = levels;
+        this.quantities = new long[levels.size()];
+        this.notionals = new BigDecimal[levels.size()];
+
+        var quantity = 0L;
+        var notional = ZERO;
+        var i = 0;
+        while (i < levels.size() && quantity < Long.MAX_VALUE) {
+            var level = levels.get(i);
+            quantity = quantity > Long.MAX_VALUE - level.quantity ? Long.MAX_VALUE : quantity + level.quantity;
+            notional = notional.add(level.price.multiply(BigDecimal.valueOf(level.quantity)));
+            quantities[i] = quantity;
+            notionals[i] = notional;
+            i++;
+        }
+        this.reachable = i;
+    }
+
+    // index of the first level at which the cumulative quantity reaches the quantity, -1 when the side holds less
+    int levelReaching(long quantity) {
+        var low = 0;
+        var high = reachable;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (quantities[middle] < quantity) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < reachable ? low : -1;
+    }
+
+    DepthLevel level(int index) {
+        return levels.get(index);
+    }
+
+    // price times quantity of filling the quantity with every level before the given one and part of that level, the
+    // total before the level is exact as it is below the quantity
+    BigDecimal notional(long quantity, int level) {
+        if (level == 0) return levels.get(0).price.multiply(BigDecimal.valueOf(quantity));
+
+        var remaining = quantity - quantities[level - 1];
+        return notionals[level - 1].add(levels.get(level).price.multiply(BigDecimal.valueOf(remaining)));
+    }
+}
@@ -0,0 +1,264 @@
+package orderbook;
+
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.math.BigDecimal.ZERO;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static orderbook.OrderBook.TOP_OF_BOOK_LEVELS;
+import static orderbook.Subscription.Mode.TOP_OF_BOOK;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Cross rate book derived from two leg books, such as EURJPY from EURUSD and USDJPY, or EURGBP from EURUSD and an
+ * inverted GBPUSD. The first leg converts the base currency of the cross into an intermediate one, the second leg
+ * converts that into the quote currency, and quantities are in the base currency of the cross.
+ * <p>
+ * Only the best levels of the legs take part: the book subscribes to the top of book of both legs and, whenever one
+ * changes, walks their best levels once to recompute its own best levels. Bids are rounded down and offers up to the
+ * scale of the cross. Every order of the cross has the cross instrument as its source.
+ */
+public class SyntheticOrderBook implements AutoCloseable {
+
+    private final String instrument;
+    private final Leg first;
+    private final Leg second;
+    private final int levels;
+    private final int scale;
+    private final Subscription firstSubscription;
+    private final Subscription secondSubscription;
+    // guarded by this
+    private long firstVersion = -1;
+    private long secondVersion = -1;
+    private volatile Levels current = new Levels(0, emptyList(), emptyList());
+
+    /**
+     * A leg used as quoted, or inverted when the book quotes the currencies the other way round.
+     */
+    public static final class Leg {
+        final OrderBook orderBook;
+        final boolean inverted;
+
+        private Leg(OrderBook orderBook, boolean inverted) {
+            this.orderBook = requireNonNull(orderBook, "orderBook");
+            this.inverted = inverted;
+        }
+
+        public static Leg of(OrderBook orderBook) {
+            return new Leg(orderBook, false);
+        }
+
+        public static Leg inverted(OrderBook orderBook) {
+            return new Leg(orderBook, true);
+        }
+
+        // levels of the book giving the side of the cross, an inverted leg sells where the cross buys
+        List<DepthLevel> levels(TopOfBook topOfBook, Side side) {
+            return topOfBook.levels(inverted ? opposite(side) : side);
+        }
+
+        BigDecimal rate(DepthLevel level) {
+            return inverted ? BigDecimal.ONE.divide(level.price, MathContext.DECIMAL64) : level.price;
+        }
+
+        // the price of the level as factor of the cross price, one when the leg divides instead
+        BigDecimal multiplier(DepthLevel level) {
+            return inverted ? BigDecimal.ONE : level.price;
+        }
+
+        BigDecimal divisor(DepthLevel level) {
+            return inverted ? level.price : BigDecimal.ONE;
+        }
+
+        // quantity of the level in the currency the leg converts from
+        BigDecimal quantity(DepthLevel level) {
+            var quantity = BigDecimal.valueOf(level.quantity);
+            return inverted ? quantity.multiply(level.price) : quantity;
+        }
+
+        @Override
+        public String toString() {
+            return "Leg{" +
+                    "instrument=" + orderBook.getInstrument() +
+                    ", inverted=" + inverted +
+                    '}';
+        }
+    }
+
+    public SyntheticOrderBook(String instrument, Leg first, Leg second, int levels, int scale) {
+        if (!(levels > 0 && levels <= TOP_OF_BOOK_LEVELS)) throw new IllegalArgumentException(
+                String.format("levels must be between 1 and %s", TOP_OF_BOOK_LEVELS)
+        );
+        if (scale < 0) throw new IllegalArgumentException("scale must not be negative");
+
+        this.instrument = requireNonNull(instrument, "instrument");
+        this.first = requireNonNull(first, "first");
+        this.second = requireNonNull(second, "second");
+        this.levels = levels;
+        this.scale = scale;
+        // subscribed before the first computation, so no change of a leg after it is missed
+        this.firstSubscription = first.orderBook.subscribe(delta -> recompute(), TOP_OF_BOOK);
+        this.secondSubscription = second.orderBook.subscribe(delta -> recompute(), TOP_OF_BOOK);
+        recompute();
+    }
+
+    public String getInstrument() {
+        return instrument;
+    }
+
+    // grows with every recomputation that changed the levels of the cross
+    public long getVersion() {
+        return current.version;
+    }
+
+    public List<Order> getOrdersBySide(Side side) {
+        return current.side(side);
+    }
+
+    public long getTotalQuantityForPriceAndSide(BigDecimal price, Side side) {
+        for (var order : current.side(side)) {
+            if (order.priceLevel.price.compareTo(price) == 0) return order.priceLevel.quantity;
+        }
+        return 0;
+    }
+
+    public BigDecimal getVwapForQuantityAndSide(long quantity, Side side) {
+        var count = 0;
+        var notional = ZERO;
+        for (var order : current.side(side)) {
+            if (order.priceLevel.quantity != quantity) continue;
+
+            count++;
+            notional = notional.add(order.priceLevel.price.multiply(BigDecimal.valueOf(quantity)));
+        }
+        if (count == 0) return ZERO;
+
+        return notional.divide(BigDecimal.valueOf(Math.multiplyExact(quantity, count)), scale, RoundingMode.HALF_EVEN);
+    }
+
+    @Override
+    public void close() {
+        firstSubscription.close();
+        secondSubscription.close();
+    }
+
+    // called on the dispatcher threads of both legs
+    private synchronized void recompute() {
+        var firstTop = first.orderBook.getTopOfBook();
+        var secondTop = second.orderBook.getTopOfBook();
+        if (firstTop.version == firstVersion && secondTop.version == secondVersion) return;
+
+        firstVersion = firstTop.version;
+        secondVersion = secondTop.version;
+        var bids = cross(firstTop, secondTop, BUY);
+        var offers = cross(firstTop, secondTop, SELL);
+        var previous = current;
+        if (sameOrders(bids, previous.bids) && sameOrders(offers, previous.offers)) return;
+
+        current = new Levels(previous.version + 1, bids, offers);
+    }
+
+    // walks the levels of both legs best first, every step fills what is left of the smaller of the two levels
+    private List<Order> cross(TopOfBook firstTop, TopOfBook secondTop, Side side) {
+        var firstLevels = first.levels(firstTop, side);
+        var secondLevels = second.levels(secondTop, side);
+        var orders = new ArrayList<Order>(levels);
+        var rounding = side == BUY ? RoundingMode.FLOOR : RoundingMode.CEILING;
+
+        int i = 0;
+        int j = 0;
+        var firstLeft = firstLevels.isEmpty() ? ZERO : first.quantity(firstLevels.get(0));
+        var secondLeft = secondLevels.isEmpty() ? ZERO : second.quantity(secondLevels.get(0));
+        BigDecimal lastPrice = null;
+        var lastQuantity = ZERO;
+        while (i < firstLevels.size() && j < secondLevels.size()) {
+            var firstRate = first.rate(firstLevels.get(i));
+            var price = price(firstLevels.get(i), secondLevels.get(j), rounding);
+            if (lastPrice != null && price.compareTo(lastPrice) != 0) {
+                if (addOrder(orders, lastPrice, lastQuantity, side) == levels) return unmodifiableList(orders);
+                lastQuantity = ZERO;
+            }
+            lastPrice = price;
+
+            // what the second leg has left is in the intermediate currency, the first leg's rate converts it back
+            var secondLeftInBase = secondLeft.divide(firstRate, MathContext.DECIMAL64);
+            if (secondLeftInBase.compareTo(firstLeft) <= 0) {
+                lastQuantity = lastQuantity.add(secondLeftInBase);
+                firstLeft = firstLeft.subtract(secondLeftInBase);
+                if (++j < secondLevels.size()) secondLeft = second.quantity(secondLevels.get(j));
+            } else {
+                lastQuantity = lastQuantity.add(firstLeft);
+                secondLeft = secondLeft.subtract(firstLeft.multiply(firstRate));
+                firstLeft = ZERO;
+            }
+            if (firstLeft.signum() <= 0 && ++i < firstLevels.size()) firstLeft = first.quantity(firstLevels.get(i));
+        }
+        if (lastPrice != null) addOrder(orders, lastPrice, lastQuantity, side);
+        return unmodifiableList(orders);
+    }
+
+    // a single division rounded straight to the scale of the cross, so a rounded inverse never moves it by a tick
+    private BigDecimal price(DepthLevel firstLevel, DepthLevel secondLevel, RoundingMode rounding) {
+        var dividend = first.multiplier(firstLevel).multiply(second.multiplier(secondLevel));
+        var divisor = first.divisor(firstLevel).multiply(second.divisor(secondLevel));
+        return dividend.divide(divisor, scale, rounding);
+    }
+
+    // quantities below one unit of the base currency are not quoted
+    private int addOrder(List<Order> orders, BigDecimal price, BigDecimal quantity, Side side) {
+        var wholeQuantity = quantity.longValue();
+        if (wholeQuantity > 0) orders.add(new Order(instrument, new PriceLevel(price, wholeQuantity, side)));
+        return orders.size();
+    }
+
+    private static boolean sameOrders(List<Order> orders, List<Order> otherOrders) {
+        if (orders.size() != otherOrders.size()) return false;
+
+        for (int i = 0; i < orders.size(); i++) {
+            var level = orders.get(i).priceLevel;
+            var otherLevel = otherOrders.get(i).priceLevel;
+            if (level.price.compareTo(otherLevel.price) != 0 || level.quantity != otherLevel.quantity) return false;
+        }
+        return true;
+    }
+
+    private static Side opposite(Side side) {
+        return side == BUY ? SELL : BUY;
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticOrderBook{" +
+                "instrument='" + instrument + '\'' +
+                ", first=" + first +
+                ", second=" + second +
+                ", levels=" + levels +
+                ", scale=" + scale +
+                '}';
+    }
+
+    private static final class Levels {
+        final long version;
+        final List<Order> bids;
+        final List<Order> offers;
+
+        Levels(long version, List<Order> bids, List<Order> offers) {
+            this.version = version;
+            this.bids = bids;
+            this.offers = offers;
+        }
+
+        List<Order> side(Side side) {
+            return side == BUY ? bids : offers;
+        }
+    }
+}
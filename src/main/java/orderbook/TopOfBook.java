@@ -0,0 +1,60 @@
+package orderbook;
+
+import orderbook.marketdata.Side;
+
+import java.util.List;
+import java.util.Optional;
+
+import static orderbook.marketdata.Side.BUY;
+
+/**
+ * Best aggregated levels of both sides of one published snapshot of an {@link OrderBook}, computed when the snapshot
+ * is published. The version grows with every publication, so a poller holding an earlier instance can tell the book
+ * is unchanged by comparing versions alone.
+ */
+public class TopOfBook {
+
+    public final long version;
+    // best price first, at most OrderBook.TOP_OF_BOOK_LEVELS levels
+    public final List<DepthLevel> bids;
+    public final List<DepthLevel> offers;
+
+    TopOfBook(long version, List<DepthLevel> bids, List<DepthLevel> offers) {
+        this.version = version;
+        this.bids = bids;
+        this.offers = offers;
+    }
+
+    public List<DepthLevel> levels(Side side) {
+        return side == BUY ? bids : offers;
+    }
+
+    public Optional<DepthLevel> best(Side side) {
+        var levels = levels(side);
+        return levels.isEmpty() ? Optional.empty() : Optional.of(levels.get(0));
+    }
+
+    boolean sameLevels(TopOfBook other) {
+        return sameLevels(bids, other.bids) && sameLevels(offers, other.offers);
+    }
+
+    private static boolean sameLevels(List<DepthLevel> levels, List<DepthLevel> otherLevels) {
+        if (levels.size() != otherLevels.size()) return false;
+
+        for (int i = 0; i < levels.size(); i++) {
+            var level = levels.get(i);
+            var otherLevel = otherLevels.get(i);
+            if (level.priceKey.compareTo(otherLevel.priceKey) != 0 || level.quantity != otherLevel.quantity || level.sources != otherLevel.sources) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TopOfBook{" +
+                "version=" + version +
+                ", bids=" + bids +
+                ", offers=" + offers +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+package orderbook;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.math.BigDecimal.ZERO;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Immutable per-side index from order quantity to the number of orders with that quantity and the sum of their
+ * price times quantity, so VWAP for a quantity is answered from a single bucket.
+ */
+final class VwapIndex {
+
+    private final Bucket emptyBucket;
+    private final Map<Long, Bucket> buckets;
+
+    private VwapIndex(Bucket emptyBucket, Map<Long, Bucket> buckets) {
+        this.emptyBucket = emptyBucket;
+        this.buckets = buckets;
+    }
+
+    static VwapIndex decimal() {
+        return new VwapIndex(DecimalBucket.EMPTY, emptyMap());
+    }
+
+    static VwapIndex scaled(PriceScale priceScale) {
+        return new VwapIndex(new ScaledBucket(priceScale.scale(), 0, Notional.ZERO), emptyMap());
+    }
+
+    BigDecimal vwap(long quantity) {
+        var bucket = buckets.get(quantity);
+        return bucket == null ? ZERO : bucket.vwap(quantity);
+    }
+
+    // copies the buckets, O(distinct quantities), and updates those of the orders of the runs
+    VwapIndex replace(List<List<Order>> oldRuns, List<List<Order>> newRuns) {
+        var updatedBuckets = new HashMap<>(buckets);
+        for (var run : oldRuns) {
+            for (var order : run) {
+                var bucket = updatedBuckets.get(order.priceLevel.quantity).minus(order);
+                if (bucket.count == 0) {
+                    updatedBuckets.remove(order.priceLevel.quantity);
+                } else {
+                    updatedBuckets.put(order.priceLevel.quantity, bucket);
+                }
+            }
+        }
+        for (var run : newRuns) {
+            for (var order : run) {
+                updatedBuckets.put(order.priceLevel.quantity, updatedBuckets.getOrDefault(order.priceLevel.quantity, emptyBucket).plus(order));
+            }
+        }
+        return new VwapIndex(emptyBucket, updatedBuckets);
+    }
+
+    private abstract static class Bucket {
+        final long count;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+
+        abstract Bucket plus(Order order);
+
+        abstract Bucket minus(Order order);
+
+        abstract BigDecimal vwap(long quantity);
+
+        BigDecimal divide(BigDecimal dividend, long quantity) {
+            return dividend.divide(BigDecimal.valueOf(Math.multiplyExact(quantity, count)), RoundingMode.HALF_EVEN);
+        }
+    }
+
+    // Keeps a count of prices per scale, because the VWAP of BigDecimal prices carries the largest scale among them
+    private static final class DecimalBucket extends Bucket {
+        static final DecimalBucket EMPTY = new DecimalBucket(0, ZERO, new int[1]);
+
+        private final BigDecimal notional;
+        private final int[] countsByScale;
+
+        private DecimalBucket(long count, BigDecimal notional, int[] countsByScale) {
+            super(count);
+            this.notional = notional;
+            this.countsByScale = countsByScale;
+        }
+
+        @Override
+        Bucket plus(Order order) {
+            var price = order.priceLevel.price;
+            var scale = Math.max(price.scale(), 0);
+            var updatedCountsByScale = Arrays.copyOf(countsByScale, Math.max(countsByScale.length, scale + 1));
+            updatedCountsByScale[scale]++;
+            return new DecimalBucket(count + 1, notional.add(price.multiply(BigDecimal.valueOf(order.priceLevel.quantity))), updatedCountsByScale);
+        }
+
+        @Override
+        Bucket minus(Order order) {
+            var price = order.priceLevel.price;
+            var updatedCountsByScale = countsByScale.clone();
+            updatedCountsByScale[Math.max(price.scale(), 0)]--;
+            return new DecimalBucket(count - 1, notional.subtract(price.multiply(BigDecimal.valueOf(order.priceLevel.quantity))), updatedCountsByScale);
+        }
+
+        @Override
+        BigDecimal vwap(long quantity) {
+            var scale = countsByScale.length - 1;
+            while (scale > 0 && countsByScale[scale] == 0) scale--;
+
+            return divide(notional.setScale(scale), quantity);
+        }
+    }
+
+    private static final class ScaledBucket extends Bucket {
+        private final int scale;
+        private final Notional notional;
+
+        private ScaledBucket(int scale, long count, Notional notional) {
+            super(count);
+            this.scale = scale;
+            this.notional = notional;
+        }
+
+        @Override
+        Bucket plus(Order order) {
+            return new ScaledBucket(scale, count + 1, notional.plus(order.scaledPrice, order.priceLevel.quantity));
+        }
+
+        @Override
+        Bucket minus(Order order) {
+            return new ScaledBucket(scale, count - 1, notional.minus(order.scaledPrice, order.priceLevel.quantity));
+        }
+
+        @Override
+        BigDecimal vwap(long quantity) {
+            return divide(notional.toBigDecimal(scale), quantity);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package orderbook.marketdata;
+
+import java.math.BigDecimal;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Change of a single level of one source, identified by its side and price, as opposed to {@link MarketData} which
+ * replaces every level of the source. The quantity of a {@link Action#DELETE} is not used.
+ */
+public class LevelUpdate {
+
+    public enum Action {
+        ADD,
+        MODIFY,
+        DELETE
+    }
+
+    public final String source;
+    public final String instrument;
+    public final Action action;
+    public final Side side;
+    public final BigDecimal price;
+    public final long quantity;
+
+    public LevelUpdate(String source, String instrument, Action action, Side side, BigDecimal price, long quantity) {
+        this.source = requireNonNull(source, "source");
+        this.instrument = requireNonNull(instrument);
+        this.action = requireNonNull(action, "action");
+        this.side = requireNonNull(side, "side");
+        this.price = requireNonNull(price, "price");
+        this.quantity = quantity;
+
+        if (action != Action.DELETE && !(quantity > 0)) throw new IllegalArgumentException("quantity must be positive");
+        if (price.compareTo(BigDecimal.ZERO) < 1) throw new IllegalArgumentException("price must be positive");
+    }
+
+    public static LevelUpdate delete(String source, String instrument, Side side, BigDecimal price) {
+        return new LevelUpdate(source, instrument, Action.DELETE, side, price, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "LevelUpdate{" +
+                "source='" + source + '\'' +
+                ", instrument='" + instrument + '\'' +
+                ", action=" + action +
+                ", side=" + side +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
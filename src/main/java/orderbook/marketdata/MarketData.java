@@ -5,9 +5,10 @@ import java.util.List;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
 
 public class MarketData {
-    static final int MAX_ELEMENTS_PER_SIDE = 64;
+    public static final int MAX_ELEMENTS_PER_SIDE = 64;
 
     public final String source;
     public final String instrument;
@@ -22,16 +23,18 @@ public class MarketData {
     }
 
     private void validate(List<PriceLevel> priceList) {
-        final var buyCount = priceList.stream().filter(price -> price.side == BUY).count();
-        if (buyCount > MAX_ELEMENTS_PER_SIDE) throw new IllegalArgumentException(String.format(
-                "No more than %s elements for BUY side can be specified but the actual amount was %s",
-                MAX_ELEMENTS_PER_SIDE, buyCount
-        ));
+        var buyCount = 0;
+        for (int i = 0; i < priceList.size(); i++) {
+            if (priceList.get(i).side == BUY) buyCount++;
+        }
+        validateSideCount(BUY, buyCount);
+        validateSideCount(SELL, priceList.size() - buyCount);
+    }
 
-        var sellCount = priceList.size() - buyCount;
-        if (sellCount > MAX_ELEMENTS_PER_SIDE) throw new IllegalArgumentException(String.format(
-                "No more than %s elements for SELL side can be specified but the actual amount was %s",
-                MAX_ELEMENTS_PER_SIDE, sellCount
+    static void validateSideCount(Side side, int count) {
+        if (count > MAX_ELEMENTS_PER_SIDE) throw new IllegalArgumentException(String.format(
+                "No more than %s elements for %s side can be specified but the actual amount was %s",
+                MAX_ELEMENTS_PER_SIDE, side, count
         ));
     }
 
@@ -0,0 +1,166 @@
+package orderbook.marketdata;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static orderbook.marketdata.MarketData.validateSideCount;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Flyweight over a binary market data message in a {@link ByteBuffer}, laid out as
+ * <pre>
+ * int message length, short source bytes, source, short instrument bytes, instrument, byte bid count,
+ * byte offer count, bid count then offer count times (long scaled price, long quantity)
+ * </pre>
+ * Prices are scaled longs as in {@link MutableMarketData}. {@link #wrap(ByteBuffer, int)} only checks the framing, the
+ * levels are validated while {@link #decodeInto(MutableMarketData)} copies them, so a message is read once and nothing
+ * is allocated after its source and instrument were seen. See {@link MarketDataEncoder} for the writing side.
+ * <p>
+ * An instance is reused for every message and must not be shared between threads.
+ */
+public class MarketDataDecoder {
+
+    public static final int LEVEL_BYTES = 2 * Long.BYTES;
+
+    static final int MIN_LENGTH = Integer.BYTES + 2 * Short.BYTES + 2;
+
+    private static final int STRING_CACHE_SIZE = 256;
+
+    // decoded sources and instruments, overwritten on collision
+    private final byte[][] cachedBytes = new byte[STRING_CACHE_SIZE][];
+    private final String[] cachedStrings = new String[STRING_CACHE_SIZE];
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private int instrumentOffset;
+    private int bidCount;
+    private int offerCount;
+    private int levelsOffset;
+
+    /**
+     * Points the decoder at the message starting at the absolute offset of the buffer, whose position is left as is.
+     */
+    public MarketDataDecoder wrap(ByteBuffer buffer, int offset) {
+        if (!(offset >= 0 && offset + MIN_LENGTH <= buffer.limit())) throw new IllegalArgumentException(String.format(
+                "Message at %s does not fit the buffer of %s bytes", offset, buffer.limit()
+        ));
+        var length = buffer.getInt(offset);
+        if (!(length >= MIN_LENGTH && length <= buffer.limit() - offset)) throw new IllegalArgumentException(String.format(
+                "Message length %s at %s does not fit the buffer of %s bytes", length, offset, buffer.limit()
+        ));
+
+        var instrumentOffset = offset + Integer.BYTES + Short.BYTES + stringLength(buffer, offset + Integer.BYTES, offset + length);
+        var countsOffset = instrumentOffset + Short.BYTES + stringLength(buffer, instrumentOffset, offset + length);
+        if (countsOffset + 2 > offset + length) throw new IllegalArgumentException("Message is shorter than its strings");
+
+        var bidCount = Byte.toUnsignedInt(buffer.get(countsOffset));
+        var offerCount = Byte.toUnsignedInt(buffer.get(countsOffset + 1));
+        validateSideCount(BUY, bidCount);
+        validateSideCount(SELL, offerCount);
+        if (countsOffset + 2 + (bidCount + offerCount) * LEVEL_BYTES != offset + length) throw new IllegalArgumentException(String.format(
+                "Message length %s does not match %s bids and %s offers", length, bidCount, offerCount
+        ));
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.instrumentOffset = instrumentOffset;
+        this.bidCount = bidCount;
+        this.offerCount = offerCount;
+        this.levelsOffset = countsOffset + 2;
+        return this;
+    }
+
+    // bytes of the wrapped message, the next one starts right after it
+    public int length() {
+        return length;
+    }
+
+    public String getSource() {
+        return string(offset + Integer.BYTES);
+    }
+
+    public String getInstrument() {
+        return string(instrumentOffset);
+    }
+
+    public int getLevelCount(Side side) {
+        return side == BUY ? bidCount : offerCount;
+    }
+
+    public long getScaledPrice(Side side, int level) {
+        return buffer.getLong(levelOffset(side, level));
+    }
+
+    public long getQuantity(Side side, int level) {
+        return buffer.getLong(levelOffset(side, level) + Long.BYTES);
+    }
+
+    /**
+     * Copies the message into the reusable event, validating every level on the way.
+     */
+    public MutableMarketData decodeInto(MutableMarketData marketData) {
+        marketData.reset(getSource(), getInstrument());
+        for (int level = 0; level < bidCount; level++) marketData.addLevel(BUY, getScaledPrice(BUY, level), getQuantity(BUY, level));
+        for (int level = 0; level < offerCount; level++) marketData.addLevel(SELL, getScaledPrice(SELL, level), getQuantity(SELL, level));
+        return marketData;
+    }
+
+    /**
+     * Builds the event for books that keep {@link PriceLevel}s, with prices of the given scale.
+     */
+    public MarketData toMarketData(int scale) {
+        var priceList = new ArrayList<PriceLevel>(bidCount + offerCount);
+        for (var side : Side.values()) {
+            for (int level = 0; level < getLevelCount(side); level++) {
+                priceList.add(new PriceLevel(BigDecimal.valueOf(getScaledPrice(side, level), scale), getQuantity(side, level), side));
+            }
+        }
+        return new MarketData(getSource(), getInstrument(), priceList);
+    }
+
+    private int levelOffset(Side side, int level) {
+        if (!(level >= 0 && level < getLevelCount(side))) throw new IndexOutOfBoundsException(String.format(
+                "Level %s of %s, %s has %s", level, side, getSource(), getLevelCount(side)
+        ));
+        return levelsOffset + ((side == BUY ? 0 : bidCount) + level) * LEVEL_BYTES;
+    }
+
+    private String string(int lengthOffset) {
+        var length = buffer.getShort(lengthOffset);
+        var start = lengthOffset + Short.BYTES;
+        int hash = length;
+        for (int i = 0; i < length; i++) hash = 31 * hash + buffer.get(start + i);
+
+        var index = hash & (STRING_CACHE_SIZE - 1);
+        var bytes = cachedBytes[index];
+        if (bytes != null && sameBytes(bytes, start, length)) return cachedStrings[index];
+
+        bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = buffer.get(start + i);
+        cachedBytes[index] = bytes;
+        return cachedStrings[index] = new String(bytes, UTF_8);
+    }
+
+    private boolean sameBytes(byte[] bytes, int start, int length) {
+        if (bytes.length != length) return false;
+
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buffer.get(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static int stringLength(ByteBuffer buffer, int lengthOffset, int end) {
+        if (lengthOffset + Short.BYTES > end) throw new IllegalArgumentException("Message is shorter than its strings");
+
+        var length = buffer.getShort(lengthOffset);
+        if (!(length >= 0 && lengthOffset + Short.BYTES + length <= end)) throw new IllegalArgumentException(String.format(
+                "String length %s at %s does not fit the message", length, lengthOffset
+        ));
+        return length;
+    }
+}
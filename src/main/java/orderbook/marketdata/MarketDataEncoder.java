@@ -0,0 +1,43 @@
+package orderbook.marketdata;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static orderbook.marketdata.MarketDataDecoder.LEVEL_BYTES;
+import static orderbook.marketdata.MarketDataDecoder.MIN_LENGTH;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+
+/**
+ * Writes events in the binary layout read by {@link MarketDataDecoder}.
+ */
+public final class MarketDataEncoder {
+
+    private MarketDataEncoder() {
+    }
+
+    /**
+     * Writes the event at the position of the buffer and advances it, returns the length of the message.
+     */
+    public static int encode(MutableMarketData marketData, ByteBuffer buffer) {
+        var source = marketData.getSource().getBytes(UTF_8);
+        var instrument = marketData.getInstrument().getBytes(UTF_8);
+        if (source.length > Short.MAX_VALUE || instrument.length > Short.MAX_VALUE) throw new IllegalArgumentException(
+                String.format("Source and instrument must not be longer than %s bytes", Short.MAX_VALUE)
+        );
+
+        var bidCount = marketData.getLevelCount(BUY);
+        var offerCount = marketData.getLevelCount(SELL);
+        var length = MIN_LENGTH + source.length + instrument.length + (bidCount + offerCount) * LEVEL_BYTES;
+        buffer.putInt(length)
+                .putShort((short) source.length).put(source)
+                .putShort((short) instrument.length).put(instrument)
+                .put((byte) bidCount).put((byte) offerCount);
+        for (var side : Side.values()) {
+            for (int level = 0; level < marketData.getLevelCount(side); level++) {
+                buffer.putLong(marketData.getScaledPrice(side, level)).putLong(marketData.getQuantity(side, level));
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,77 @@
+package orderbook.marketdata;
+
+import static java.util.Objects.requireNonNull;
+import static orderbook.marketdata.MarketData.MAX_ELEMENTS_PER_SIDE;
+import static orderbook.marketdata.MarketData.validateSideCount;
+import static orderbook.marketdata.Side.BUY;
+
+/**
+ * Reusable, garbage-free counterpart of {@link MarketData} for the allocation-free ingest path. Prices are already
+ * scaled longs, see {@code orderbook.PriceScale}, and every side holds up to {@value MarketData#MAX_ELEMENTS_PER_SIDE}
+ * levels in pre-sized arrays. An instance is refilled for every event and must not be shared between threads.
+ */
+public class MutableMarketData {
+
+    private final long[] bidPrices = new long[MAX_ELEMENTS_PER_SIDE];
+    private final long[] bidQuantities = new long[MAX_ELEMENTS_PER_SIDE];
+    private final long[] offerPrices = new long[MAX_ELEMENTS_PER_SIDE];
+    private final long[] offerQuantities = new long[MAX_ELEMENTS_PER_SIDE];
+    private int bidCount;
+    private int offerCount;
+    private String source;
+    private String instrument;
+
+    public MutableMarketData reset(String source, String instrument) {
+        this.source = requireNonNull(source, "source");
+        this.instrument = requireNonNull(instrument);
+        this.bidCount = 0;
+        this.offerCount = 0;
+        return this;
+    }
+
+    public MutableMarketData addLevel(Side side, long scaledPrice, long quantity) {
+        if (!(quantity > 0)) throw new IllegalArgumentException("quantity must be positive");
+        if (!(scaledPrice > 0)) throw new IllegalArgumentException("price must be positive");
+
+        if (side == BUY) {
+            validateSideCount(side, bidCount + 1);
+            bidPrices[bidCount] = scaledPrice;
+            bidQuantities[bidCount++] = quantity;
+        } else {
+            validateSideCount(side, offerCount + 1);
+            offerPrices[offerCount] = scaledPrice;
+            offerQuantities[offerCount++] = quantity;
+        }
+        return this;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getInstrument() {
+        return instrument;
+    }
+
+    public int getLevelCount(Side side) {
+        return side == BUY ? bidCount : offerCount;
+    }
+
+    public long getScaledPrice(Side side, int level) {
+        return side == BUY ? bidPrices[level] : offerPrices[level];
+    }
+
+    public long getQuantity(Side side, int level) {
+        return side == BUY ? bidQuantities[level] : offerQuantities[level];
+    }
+
+    @Override
+    public String toString() {
+        return "MutableMarketData{" +
+                "source='" + source + '\'' +
+                ", instrument='" + instrument + '\'' +
+                ", bidCount=" + bidCount +
+                ", offerCount=" + offerCount +
+                '}';
+    }
+}
@@ -0,0 +1,208 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncOrderBookTest {
+
+    private final OrderBook orderBook = new OrderBook("AUDUSD");
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AsyncOrderBook asyncOrderBook = new AsyncOrderBook(orderBook, executor);
+
+    @AfterEach
+    void tearDown() {
+        asyncOrderBook.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void should_complete_queries_from_current_snapshot() throws Exception {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY), new PriceLevel(ONE, 2, SELL)));
+
+        // when
+        var orders = asyncOrderBook.getOrdersBySide(BUY);
+        var quantity = asyncOrderBook.getTotalQuantityForPriceAndSide(ONE, SELL);
+
+        // then
+        assertEquals(orderBook.getOrdersBySide(BUY), orders.get(5, TimeUnit.SECONDS));
+        assertEquals(2, (long) quantity.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void should_deliver_top_of_book_on_subscription_and_on_change() throws Exception {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+        var subscriber = new QueueSubscriber<TopOfBook>();
+        asyncOrderBook.topOfBook().subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+        assertEquals(1, subscriber.next().version);
+
+        // when
+        orderBook.handleMarketDataEvent(marketData("participant2", new PriceLevel(BigDecimal.valueOf(11), 1, BUY)));
+
+        // then
+        var topOfBook = subscriber.next();
+        assertEquals(2, topOfBook.version);
+        assertEquals(BigDecimal.valueOf(11), topOfBook.best(BUY).orElseThrow().price);
+    }
+
+    @Test
+    void should_coalesce_to_latest_snapshot__when_subscriber_has_no_demand() throws Exception {
+        // given
+        var subscriber = new QueueSubscriber<List<DepthLevel>>();
+        asyncOrderBook.depth(BUY, 1).subscribe(subscriber);
+        subscriber.request(1);
+        assertTrue(subscriber.next().isEmpty());
+
+        // when
+        for (int price = 1; price <= 100; price++) {
+            orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(BigDecimal.valueOf(price), 1, BUY)));
+        }
+        assertNull(subscriber.items.poll(100, TimeUnit.MILLISECONDS));
+        subscriber.request(Long.MAX_VALUE);
+
+        // then
+        assertEquals(BigDecimal.valueOf(100), subscriber.next().get(0).price);
+        assertNull(subscriber.items.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void should_complete_streams__on_close() throws Exception {
+        // given
+        var subscriber = new QueueSubscriber<TopOfBook>();
+        asyncOrderBook.topOfBook().subscribe(subscriber);
+
+        // when
+        asyncOrderBook.close();
+
+        // then
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, asyncOrderBook.getStreamCount());
+    }
+
+    @Test
+    void should_fail_stream__when_view_of_snapshot_fails() throws Exception {
+        // given
+        var failure = new IllegalStateException("view failed");
+        var subscriber = new QueueSubscriber<Object>();
+        asyncOrderBook.publisher(false, book -> {
+            throw failure;
+        }).subscribe(subscriber);
+
+        // when
+        subscriber.request(1);
+
+        // then
+        assertSame(failure, subscriber.error.poll(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.items.isEmpty());
+        assertEquals(0, asyncOrderBook.getStreamCount());
+    }
+
+    @Test
+    void should_cancel_stream__when_subscriber_throws_from_on_next() throws Exception {
+        // given
+        var subscriber = new QueueSubscriber<TopOfBook>() {
+            @Override
+            public void onNext(TopOfBook item) {
+                throw new IllegalStateException("subscriber failed");
+            }
+        };
+        asyncOrderBook.topOfBook().subscribe(subscriber);
+
+        // when
+        subscriber.request(1);
+
+        // then
+        for (int i = 0; i < 500 && asyncOrderBook.getStreamCount() > 0; i++) Thread.sleep(10);
+        assertEquals(0, asyncOrderBook.getStreamCount());
+        assertNull(subscriber.error.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void should_release_subscription__when_last_stream_is_cancelled() throws Exception {
+        // given
+        var topOfBookSubscriber = new QueueSubscriber<TopOfBook>();
+        var depthSubscriber = new QueueSubscriber<List<DepthLevel>>();
+        asyncOrderBook.topOfBook().subscribe(topOfBookSubscriber);
+        asyncOrderBook.depth(BUY, 1).subscribe(depthSubscriber);
+        topOfBookSubscriber.subscription.cancel();
+        assertTrue(asyncOrderBook.isSubscribed());
+
+        // when
+        depthSubscriber.subscription.cancel();
+
+        // then
+        assertFalse(asyncOrderBook.isSubscribed());
+        var subscriber = new QueueSubscriber<TopOfBook>();
+        asyncOrderBook.topOfBook().subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+        assertEquals(0, subscriber.next().version);
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+        assertEquals(1, subscriber.next().version);
+    }
+
+    private static MarketData marketData(String source, PriceLevel... priceLevels) {
+        return new MarketData(source, "AUDUSD", List.of(priceLevels));
+    }
+
+    private static class QueueSubscriber<T> implements Flow.Subscriber<T> {
+        final BlockingQueue<T> items = new LinkedBlockingQueue<>();
+        final BlockingQueue<Throwable> error = new LinkedBlockingQueue<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        T next() throws InterruptedException {
+            var item = items.poll(5, TimeUnit.SECONDS);
+            assertNotNull(item);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarOrderBookTest {
+
+    private static final String INSTRUMENT = "EURUSD";
+    private static final PriceScale PRICE_SCALE = PriceScale.of(5);
+
+    private final ColumnarOrderBook orderBook = new ColumnarOrderBook(INSTRUMENT, PRICE_SCALE);
+
+    @Test
+    void should_answer_queries_as_order_book__when_many_sources_quote_deep_books() {
+        // given
+        var random = new Random(11);
+        var reference = new OrderBook(INSTRUMENT, PRICE_SCALE);
+        for (int i = 0; i < 3_000; i++) {
+            var priceList = new ArrayList<PriceLevel>();
+            for (int level = random.nextInt(MarketData.MAX_ELEMENTS_PER_SIDE); level > 0; level--) {
+                var quantity = 1L + random.nextInt(5);
+                priceList.add(new PriceLevel(PRICE_SCALE.toPrice(99_990L + random.nextInt(10)), quantity, BUY));
+                priceList.add(new PriceLevel(PRICE_SCALE.toPrice(100_000L + random.nextInt(10)), quantity, SELL));
+            }
+            var marketData = new MarketData("S" + random.nextInt(300), INSTRUMENT, priceList);
+
+            // when
+            orderBook.handleMarketDataEvent(marketData);
+            reference.handleMarketDataEvent(marketData);
+        }
+
+        // then
+        for (var side : Side.values()) {
+            assertEquals(reference.getOrdersBySide(side).toString(), orderBook.getOrdersBySide(side).toString());
+            for (int tick = 0; tick < 10; tick++) {
+                var price = PRICE_SCALE.toPrice((side == BUY ? 99_990L : 100_000L) + tick);
+                assertEquals(reference.getTotalQuantityForPriceAndSide(price, side), orderBook.getTotalQuantityForPriceAndSide(price, side));
+            }
+            for (long quantity = 1; quantity <= 6; quantity++) {
+                assertEquals(reference.getVwapForQuantityAndSide(quantity, side), orderBook.getVwapForQuantityAndSide(quantity, side));
+            }
+        }
+    }
+
+    @Test
+    void should_replace_orders_of_source__when_source_sends_new_event() {
+        // given
+        orderBook.handleMarketDataEvent(new MarketData("S2", INSTRUMENT, List.of(
+                new PriceLevel(new BigDecimal("1.1"), 5, BUY),
+                new PriceLevel(new BigDecimal("1.2"), 5, BUY)
+        )));
+        orderBook.handleMarketDataEvent(new MarketData("S1", INSTRUMENT, List.of(new PriceLevel(new BigDecimal("1.1"), 5, BUY))));
+
+        // when
+        orderBook.handleMarketDataEvent(new MarketData("S2", INSTRUMENT, List.of(new PriceLevel(new BigDecimal("1.1"), 5, BUY))));
+
+        // then
+        var orders = orderBook.getOrdersBySide(BUY);
+        assertEquals(2, orders.size());
+        assertEquals("S1", orders.get(0).source);
+        assertEquals("S2", orders.get(1).source);
+        assertEquals(10, orderBook.getTotalQuantityForPriceAndSide(new BigDecimal("1.10"), BUY));
+        assertEquals(0, orderBook.getTotalQuantityForPriceAndSide(new BigDecimal("1.2"), BUY));
+    }
+
+    @Test
+    void should_keep_returned_orders__when_book_changes_afterwards() {
+        // given
+        orderBook.handleMarketDataEvent(new MarketData("S1", INSTRUMENT, List.of(new PriceLevel(new BigDecimal("1.1"), 5, SELL))));
+        var orders = orderBook.getOrdersBySide(SELL);
+
+        // when
+        orderBook.reset();
+
+        // then
+        assertEquals(1, orders.size());
+        assertEquals(new BigDecimal("1.10000"), orders.get(0).priceLevel.price);
+        assertEquals(0, orderBook.getOrdersBySide(SELL).size());
+    }
+
+    @Test
+    void should_not_accept_event__when_instrument_is_different() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> orderBook.handleMarketDataEvent(new MarketData("S1", "GBPUSD", List.of())));
+
+        // then
+        assertEquals("Incorrect instrument, EURUSD required, but GBPUSD provided", exception.getMessage());
+    }
+}
@@ -0,0 +1,184 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.marketdata.Side.BUY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConflatingOrderBookTest {
+
+    private final OrderBook orderBook = new OrderBook("AUDUSD");
+    private final CountDownLatch applierReleased = new CountDownLatch(1);
+    private ConflatingOrderBook conflating;
+
+    @AfterEach
+    void tearDown() {
+        applierReleased.countDown();
+        if (conflating != null) conflating.close();
+    }
+
+    @Test
+    void should_apply_only_latest_pending_event_per_source_in_one_batch() {
+        // given
+        conflating = new ConflatingOrderBook(orderBook, 16, stalledApplier());
+        var latest = marketData("participant1", TEN);
+        var other = marketData("participant2", ONE);
+
+        // when
+        conflating.offer(marketData("participant1", ONE));
+        conflating.offer(marketData("participant1", BigDecimal.valueOf(5)));
+        conflating.offer(latest);
+        conflating.offer(other);
+        applierReleased.countDown();
+        conflating.close();
+
+        // then
+        assertEquals(2, conflating.getConflatedCount());
+        assertEquals(1, conflating.getBatchCount());
+        assertEquals(2, orderBook.getOrdersBySide(BUY).size());
+        assertSame(latest.priceList.get(0), orderBook.getOrdersBySide(BUY).get(0).priceLevel);
+        assertSame(other.priceList.get(0), orderBook.getOrdersBySide(BUY).get(1).priceLevel);
+    }
+
+    @Test
+    void should_drop_event_of_new_source_when_too_many_sources_are_pending() {
+        // given
+        conflating = new ConflatingOrderBook(orderBook, 1, stalledApplier());
+        conflating.offer(marketData("participant1", ONE));
+
+        // when
+        var conflated = conflating.offer(marketData("participant1", TEN));
+        var dropped = conflating.offer(marketData("participant2", TEN));
+
+        // then
+        assertTrue(conflated);
+        assertFalse(dropped);
+        assertEquals(1, conflating.getDroppedCount());
+    }
+
+    @Test
+    void should_apply_valid_events__when_batch_contains_invalid_one() {
+        // given
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(0));
+        conflating = new ConflatingOrderBook(scaledOrderBook, 16, stalledApplier());
+        conflating.offer(marketData("participant1", new BigDecimal("1.5")));
+        conflating.offer(marketData("participant2", TEN));
+
+        // when
+        applierReleased.countDown();
+        conflating.close();
+
+        // then
+        assertEquals(1, conflating.getDroppedCount());
+        assertEquals(1, scaledOrderBook.getOrdersBySide(BUY).size());
+        assertEquals("participant2", scaledOrderBook.getOrdersBySide(BUY).get(0).source);
+    }
+
+    @Test
+    void should_not_accept_market_data_with_different_instrument() {
+        // given
+        conflating = new ConflatingOrderBook(orderBook, 16);
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> conflating.offer(new MarketData("participant1", "EURUSD", List.of())));
+    }
+
+    @Test
+    void should_not_exceed_max_pending_sources__when_producers_race() throws Exception {
+        // given
+        conflating = new ConflatingOrderBook(orderBook, 10, stalledApplier());
+        var accepted = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var producers = new ArrayList<Thread>();
+        for (int producer = 0; producer < 8; producer++) {
+            var firstSource = producer * 100;
+            producers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int source = firstSource; source < firstSource + 100; source++) {
+                    if (conflating.offer(marketData("participant" + source, ONE))) accepted.incrementAndGet();
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+
+        // when
+        start.countDown();
+        for (var producer : producers) producer.join();
+        applierReleased.countDown();
+        conflating.close();
+
+        // then
+        assertEquals(10, accepted.get());
+        assertEquals(790, conflating.getDroppedCount());
+        assertEquals(10, orderBook.getOrdersBySide(BUY).size());
+    }
+
+    @Test
+    void should_apply_every_accepted_event__when_closed_while_producing() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            // given
+            var book = new OrderBook("AUDUSD");
+            var ingress = new ConflatingOrderBook(book, 1024);
+            var accepted = ConcurrentHashMap.<String>newKeySet();
+            var producers = new ArrayList<Thread>();
+            for (int producer = 0; producer < 4; producer++) {
+                var prefix = "participant" + producer + "-";
+                producers.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 1_000; i++) {
+                            var source = prefix + i;
+                            if (ingress.offer(marketData(source, ONE))) accepted.add(source);
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed
+                    }
+                }));
+            }
+            producers.forEach(Thread::start);
+            Thread.sleep(1);
+
+            // when
+            ingress.close();
+            for (var producer : producers) producer.join();
+
+            // then
+            assertEquals(accepted.size(), book.getOrdersBySide(BUY).size());
+        }
+    }
+
+    private ThreadFactory stalledApplier() {
+        return runnable -> new Thread(() -> {
+            try {
+                applierReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runnable.run();
+        });
+    }
+
+    private static MarketData marketData(String source, BigDecimal price) {
+        return new MarketData(source, "AUDUSD", List.of(new PriceLevel(price, 1, BUY)));
+    }
+}
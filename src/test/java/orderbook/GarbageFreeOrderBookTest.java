@@ -0,0 +1,139 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.MutableMarketData;
+import orderbook.marketdata.PriceLevel;
+import orderbook.marketdata.Side;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GarbageFreeOrderBookTest {
+
+    private static final String INSTRUMENT = "EURUSD";
+    private static final PriceScale PRICE_SCALE = PriceScale.of(5);
+
+    private final GarbageFreeOrderBook orderBook = new GarbageFreeOrderBook(INSTRUMENT, PRICE_SCALE, 8);
+
+    @Test
+    void should_not_allocate_per_event__when_every_source_was_seen() {
+        // given
+        var events = new MutableMarketData[8];
+        var random = new Random(42);
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new MutableMarketData().reset("S" + i, INSTRUMENT);
+            for (int level = 0; level < MarketData.MAX_ELEMENTS_PER_SIDE; level++) {
+                events[i].addLevel(BUY, 110_000 - random.nextInt(100), 1 + random.nextInt(10));
+                events[i].addLevel(SELL, 110_001 + random.nextInt(100), 1 + random.nextInt(10));
+            }
+        }
+        var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var threadId = Thread.currentThread().getId();
+
+        // when
+        // rounds still being compiled may allocate a little, any allocation per event would show up in every round
+        var leastAllocated = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            var allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100_000; i++) orderBook.handleMarketDataEvent(events[i % events.length]);
+            leastAllocated = Math.min(leastAllocated, threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+
+        // then
+        assertEquals(0, leastAllocated);
+    }
+
+    @Test
+    void should_answer_queries_as_order_book__when_same_events_handled() {
+        // given
+        var random = new Random(7);
+        var reference = new OrderBook(INSTRUMENT, PRICE_SCALE);
+        var event = new MutableMarketData();
+        for (int i = 0; i < 1_000; i++) {
+            var source = "S" + random.nextInt(8);
+            event.reset(source, INSTRUMENT);
+            var priceList = new ArrayList<PriceLevel>();
+            for (int level = random.nextInt(MarketData.MAX_ELEMENTS_PER_SIDE); level > 0; level--) {
+                var bidPrice = 99_990L + random.nextInt(10);
+                var offerPrice = 100_000L + random.nextInt(10);
+                var quantity = 1L + random.nextInt(5);
+                event.addLevel(BUY, bidPrice, quantity).addLevel(SELL, offerPrice, quantity);
+                priceList.add(new PriceLevel(PRICE_SCALE.toPrice(bidPrice), quantity, BUY));
+                priceList.add(new PriceLevel(PRICE_SCALE.toPrice(offerPrice), quantity, SELL));
+            }
+
+            // when
+            orderBook.handleMarketDataEvent(event);
+            reference.handleMarketDataEvent(new MarketData(source, INSTRUMENT, priceList));
+        }
+
+        // then
+        for (var side : Side.values()) {
+            assertEquals(reference.getOrdersBySide(side).toString(), orderBook.getOrdersBySide(side).toString());
+            for (int tick = 0; tick < 10; tick++) {
+                var price = PRICE_SCALE.toPrice((side == BUY ? 99_990L : 100_000L) + tick);
+                assertEquals(reference.getTotalQuantityForPriceAndSide(price, side), orderBook.getTotalQuantityForPriceAndSide(price, side));
+            }
+            for (long quantity = 1; quantity <= 6; quantity++) {
+                assertEquals(reference.getVwapForQuantityAndSide(quantity, side), orderBook.getVwapForQuantityAndSide(quantity, side));
+            }
+        }
+    }
+
+    @Test
+    void should_remove_levels_of_source__when_source_sends_empty_event() {
+        // given
+        orderBook.handleMarketDataEvent(new MutableMarketData().reset("S1", INSTRUMENT).addLevel(BUY, 100_000, 5));
+
+        // when
+        orderBook.handleMarketDataEvent(new MutableMarketData().reset("S1", INSTRUMENT));
+
+        // then
+        assertEquals(0, orderBook.getOrdersBySide(BUY).size());
+        assertEquals(0, orderBook.getTotalQuantityForPriceAndSide(new BigDecimal("1.00000"), BUY));
+    }
+
+    @Test
+    void should_not_accept_event__when_instrument_is_different() {
+        // given
+        var event = new MutableMarketData().reset("S1", "GBPUSD");
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> orderBook.handleMarketDataEvent(event));
+
+        // then
+        assertEquals("Incorrect instrument, EURUSD required, but GBPUSD provided", exception.getMessage());
+    }
+
+    @Test
+    void should_not_accept_event__when_more_sources_than_slots() {
+        // given
+        var orderBook = new GarbageFreeOrderBook(INSTRUMENT, PRICE_SCALE, 1);
+        orderBook.handleMarketDataEvent(new MutableMarketData().reset("S1", INSTRUMENT));
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> orderBook.handleMarketDataEvent(new MutableMarketData().reset("S2", INSTRUMENT)));
+
+        // then
+        assertEquals("No more than 1 sources can be handled, S2 rejected", exception.getMessage());
+    }
+
+    @Test
+    void should_not_accept_more_levels_than_limit() {
+        // given
+        var event = new MutableMarketData().reset("S1", INSTRUMENT);
+        for (int level = 0; level < MarketData.MAX_ELEMENTS_PER_SIDE; level++) event.addLevel(BUY, 100_000, 1);
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> event.addLevel(BUY, 100_000, 1));
+    }
+}
@@ -0,0 +1,45 @@
+package orderbook;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    private final Histogram histogram = new Histogram();
+
+    @Test
+    void should_count_small_values_exactly() {
+        // given
+        for (int value = 1; value <= 50; value++) histogram.record(value);
+
+        // when / then
+        assertEquals(50, histogram.getCount());
+        assertEquals(25, histogram.getValueAtPercentile(50));
+        assertEquals(50, histogram.getValueAtPercentile(100));
+        assertEquals(50, histogram.getMax());
+    }
+
+    @Test
+    void should_keep_relative_error_within_bucket_width__for_large_values() {
+        // given
+        long[] values = {1_000, 123_456, 98_765_432, Long.MAX_VALUE};
+
+        for (var value : values) {
+            // when
+            var highestValue = Histogram.highestValue(Histogram.index(value));
+
+            // then
+            assertTrue(highestValue >= value);
+            assertTrue(highestValue - value <= value / Histogram.SUB_BUCKETS, value + " in bucket up to " + highestValue);
+        }
+    }
+
+    @Test
+    void should_return_zero__when_nothing_recorded() {
+        // when / then
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMax());
+    }
+}
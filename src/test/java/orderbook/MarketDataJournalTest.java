@@ -0,0 +1,166 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataJournalTest {
+
+    private static final int CHUNK_SIZE = 128 * 1024;
+
+    private final Path journal;
+
+    MarketDataJournalTest() throws IOException {
+        journal = Files.createTempFile("orderbook", ".journal");
+        Files.delete(journal);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(journal);
+    }
+
+    @Test
+    void should_replay_events_of_instrument_into_same_book() throws Exception {
+        // given
+        var events = events(new Random(1), 5_000);
+        var expected = new OrderBook("AUDUSD");
+        try (var marketDataJournal = open()) {
+            for (var marketData : events) {
+                if (marketData.instrument.equals("AUDUSD")) expected.handleMarketDataEvent(marketData);
+                marketDataJournal.append(marketData);
+            }
+        }
+        var orderBook = new OrderBook("AUDUSD");
+
+        // when
+        var applied = JournalReplay.replay(journal, orderBook, Long.MAX_VALUE);
+
+        // then
+        assertEquals(events.stream().filter(marketData -> marketData.instrument.equals("AUDUSD")).count(), applied);
+        assertSameOrders(expected, orderBook);
+    }
+
+    @Test
+    void should_replay_up_to_sequence() throws Exception {
+        // given
+        var events = events(new Random(2), 2_000);
+        var expected = new OrderBook("AUDUSD");
+        try (var marketDataJournal = open()) {
+            events.forEach(marketDataJournal::append);
+        }
+        events.subList(0, 700).stream()
+                .filter(marketData -> marketData.instrument.equals("AUDUSD"))
+                .forEach(expected::handleMarketDataEvent);
+        var orderBook = new OrderBook("AUDUSD");
+
+        // when
+        JournalReplay.replay(journal, orderBook, 700);
+
+        // then
+        assertSameOrders(expected, orderBook);
+    }
+
+    @Test
+    void should_continue_sequence__when_journal_is_reopened() throws Exception {
+        // given
+        var events = events(new Random(3), 3_000);
+        try (var marketDataJournal = open()) {
+            events.subList(0, 1_000).forEach(marketDataJournal::append);
+        }
+
+        // when
+        var marketDataJournal = open();
+        events.subList(1_000, 3_000).forEach(marketDataJournal::append);
+        marketDataJournal.close();
+
+        // then
+        assertEquals(3_000, marketDataJournal.getWrittenSequence());
+        assertTrue(Files.size(journal) > CHUNK_SIZE);
+        var expected = new OrderBook("EURUSD");
+        events.stream().filter(marketData -> marketData.instrument.equals("EURUSD")).forEach(expected::handleMarketDataEvent);
+        var orderBook = new OrderBook("EURUSD");
+        JournalReplay.replay(journal, orderBook, Long.MAX_VALUE);
+        assertSameOrders(expected, orderBook);
+    }
+
+    @Test
+    void should_not_open_file_that_is_not_journal() throws Exception {
+        // given
+        Files.write(journal, new byte[64]);
+
+        // when / then
+        assertThrows(IOException.class, this::open);
+    }
+
+    @Test
+    void should_write_every_appended_event__when_closed_while_appending() throws Exception {
+        var events = events(new Random(4), 64);
+        for (int round = 0; round < 50; round++) {
+            // given
+            var marketDataJournal = new MarketDataJournal(journal, CHUNK_SIZE, 2, Thread::new);
+            var appended = new AtomicLong();
+            var producers = new ArrayList<Thread>();
+            for (int producer = 0; producer < 4; producer++) {
+                producers.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; ; i++) {
+                            marketDataJournal.append(events.get(i % events.size()));
+                            appended.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed
+                    }
+                }));
+            }
+            producers.forEach(Thread::start);
+            Thread.sleep(1);
+
+            // when
+            marketDataJournal.close();
+            for (var producer : producers) producer.join();
+
+            // then
+            assertEquals(appended.get(), marketDataJournal.getWrittenSequence() + marketDataJournal.getFailedCount());
+            Files.delete(journal);
+        }
+    }
+
+    private MarketDataJournal open() throws IOException {
+        return new MarketDataJournal(journal, CHUNK_SIZE, 1024, Thread::new);
+    }
+
+    private static void assertSameOrders(OrderBook expected, OrderBook actual) {
+        assertEquals(expected.getOrdersBySide(BUY).toString(), actual.getOrdersBySide(BUY).toString());
+        assertEquals(expected.getOrdersBySide(SELL).toString(), actual.getOrdersBySide(SELL).toString());
+    }
+
+    private static List<MarketData> events(Random random, int count) {
+        var events = new ArrayList<MarketData>();
+        for (int i = 0; i < count; i++) {
+            var priceList = new ArrayList<PriceLevel>();
+            for (int level = random.nextInt(20); level > 0; level--) {
+                priceList.add(new PriceLevel(BigDecimal.valueOf(9_000 + random.nextInt(100), 4), 1 + random.nextInt(10), BUY));
+                priceList.add(new PriceLevel(new BigDecimal("0.91" + random.nextInt(100)), 1 + random.nextInt(10), SELL));
+            }
+            events.add(new MarketData("participant" + random.nextInt(10), random.nextBoolean() ? "AUDUSD" : "EURUSD", priceList));
+        }
+        return events;
+    }
+}
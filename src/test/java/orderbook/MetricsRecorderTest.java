@@ -0,0 +1,62 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.OrderBookMetrics.Operation.MARKET_DATA_BATCH;
+import static orderbook.OrderBookMetrics.Operation.MARKET_DATA_EVENT;
+import static orderbook.OrderBookMetrics.Operation.VWAP;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsRecorderTest {
+
+    private final MetricsRecorder metrics = new MetricsRecorder();
+    private final OrderBook orderBook = new OrderBook("AUDUSD", metrics);
+
+    @Test
+    void should_record_updates_publications_and_depth() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY), new PriceLevel(ONE, 2, BUY)));
+        orderBook.handleMarketDataEvent(marketData("participant2", new PriceLevel(new BigDecimal("10.0"), 3, BUY), new PriceLevel(TEN, 4, SELL)));
+
+        // when
+        orderBook.handleMarketDataBatch(List.of(marketData("participant1", new PriceLevel(TEN, 1, BUY)), marketData("participant3")));
+        orderBook.handleMarketDataEvent(marketData("participant3"));
+
+        // then
+        assertEquals(3, metrics.getLatency(MARKET_DATA_EVENT).getCount());
+        assertEquals(1, metrics.getLatency(MARKET_DATA_BATCH).getCount());
+        assertEquals(Map.of("participant1", 2L, "participant2", 1L, "participant3", 2L), metrics.getUpdateCounts());
+        assertEquals(4, metrics.getCasRetries().getCount());
+        assertEquals(0, metrics.getCasRetries().getMax());
+        assertEquals(3, metrics.getPublicationCount());
+        assertEquals(1, metrics.getDepth(BUY));
+        assertEquals(1, metrics.getDepth(SELL));
+    }
+
+    @Test
+    void should_record_latency_of_queries() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+
+        // when
+        orderBook.getVwapForQuantityAndSide(1, BUY);
+        orderBook.getVwapForQuantityAndSide(2, BUY);
+
+        // then
+        assertEquals(2, metrics.getLatency(VWAP).getCount());
+    }
+
+    private static MarketData marketData(String source, PriceLevel... priceLevels) {
+        return new MarketData(source, "AUDUSD", List.of(priceLevels));
+    }
+}
@@ -0,0 +1,171 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookRegistryTest {
+
+    private final OrderBookRegistry registry = new OrderBookRegistry(4, 64);
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void should_route_market_data_to_book_of_its_instrument() {
+        // given
+        registry.handleMarketDataEvent(marketData("participant1", "AUDUSD", TEN));
+        registry.handleMarketDataEvent(marketData("participant1", "EURUSD", ONE));
+        registry.handleMarketDataEvent(marketData("participant2", "EURUSD", TEN));
+
+        // when
+        registry.close();
+
+        // then
+        assertEquals(Set.of("AUDUSD", "EURUSD"), registry.getInstruments());
+        assertEquals(1, registry.getOrderBook("AUDUSD").orElseThrow().getOrdersBySide(BUY).size());
+        assertEquals(2, registry.getOrderBook("EURUSD").orElseThrow().getOrdersBySide(BUY).size());
+        assertFalse(registry.getOrderBook("USDJPY").isPresent());
+    }
+
+    @Test
+    void should_return_best_level_of_every_instrument() {
+        // given
+        registry.handleMarketDataEvent(marketData("participant1", "AUDUSD", TEN));
+        registry.handleMarketDataEvent(marketData("participant1", "EURUSD", ONE));
+        registry.handleMarketDataEvent(marketData("participant2", "EURUSD", BigDecimal.valueOf(2)));
+        registry.close();
+
+        // when
+        var bestBids = registry.getBestLevelsBySide(BUY);
+
+        // then
+        assertEquals(2, bestBids.size());
+        assertEquals(TEN, bestBids.get("AUDUSD").price);
+        assertEquals(BigDecimal.valueOf(2), bestBids.get("EURUSD").price);
+        assertTrue(registry.getBestLevelsBySide(SELL).isEmpty());
+    }
+
+    @Test
+    void should_apply_events_of_many_producers_and_count_them_per_shard() throws Exception {
+        // given
+        var instruments = List.of("AUDUSD", "EURUSD", "USDJPY", "GBPUSD", "USDCHF", "NZDUSD", "USDCAD", "EURGBP");
+        var producers = new ArrayList<Thread>();
+        for (int producer = 0; producer < 4; producer++) {
+            var source = "participant" + producer;
+            producers.add(new Thread(() -> {
+                for (int i = 1; i <= 250; i++) {
+                    for (var instrument : instruments) {
+                        registry.handleMarketDataEvent(marketData(source, instrument, BigDecimal.valueOf(i)));
+                    }
+                }
+            }));
+        }
+
+        // when
+        producers.forEach(Thread::start);
+        for (var producer : producers) producer.join();
+        registry.close();
+
+        // then
+        for (var instrument : instruments) {
+            var orders = registry.getOrderBook(instrument).orElseThrow().getOrdersBySide(BUY);
+            assertEquals(4, orders.size());
+            orders.forEach(order -> assertEquals(BigDecimal.valueOf(250), order.priceLevel.price));
+        }
+        var metrics = registry.getShardMetrics();
+        assertEquals(4, metrics.size());
+        assertEquals(4 * 250 * instruments.size(), metrics.stream().mapToLong(shard -> shard.appliedEvents).sum());
+        assertEquals(instruments.size(), metrics.stream().mapToLong(shard -> shard.books).sum());
+        metrics.forEach(shard -> assertEquals(0, shard.queuedEvents));
+    }
+
+    @Test
+    void should_count_rejected_events() {
+        // given
+        var scaledRegistry = new OrderBookRegistry(1, 16, instrument -> new OrderBook(instrument, PriceScale.of(0)), shard -> Thread::new);
+        scaledRegistry.handleMarketDataEvent(marketData("participant1", "AUDUSD", new BigDecimal("1.5")));
+
+        // when
+        scaledRegistry.close();
+
+        // then
+        assertEquals(1, scaledRegistry.getShardMetrics().get(0).rejectedEvents);
+        assertThrows(IllegalStateException.class, () -> scaledRegistry.handleMarketDataEvent(marketData("participant1", "AUDUSD", ONE)));
+    }
+
+    @Test
+    void should_keep_shard_working__when_book_factory_fails() {
+        // given
+        var failingRegistry = new OrderBookRegistry(1, 2, instrument -> {
+            if (instrument.equals("EURUSD")) throw new IllegalStateException("No book for " + instrument);
+            return new OrderBook(instrument);
+        }, shard -> Thread::new);
+
+        // when
+        failingRegistry.handleMarketDataEvent(marketData("participant1", "EURUSD", ONE));
+        for (int i = 1; i <= 10; i++) failingRegistry.handleMarketDataEvent(marketData("participant1", "AUDUSD", BigDecimal.valueOf(i)));
+        failingRegistry.close();
+
+        // then
+        var metrics = failingRegistry.getShardMetrics().get(0);
+        assertEquals(1, metrics.rejectedEvents);
+        assertEquals(10, metrics.appliedEvents);
+        assertEquals(1, metrics.books);
+        assertEquals(Set.of("AUDUSD"), failingRegistry.getInstruments());
+    }
+
+    @Test
+    void should_apply_every_handed_over_event__when_closed_while_producing() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            // given
+            var closingRegistry = new OrderBookRegistry(2, 1024);
+            var handedOver = new AtomicLong();
+            var producers = new ArrayList<Thread>();
+            for (int producer = 0; producer < 4; producer++) {
+                var source = "participant" + producer;
+                producers.add(new Thread(() -> {
+                    try {
+                        for (int i = 1; ; i++) {
+                            closingRegistry.handleMarketDataEvent(marketData(source, i % 2 == 0 ? "AUDUSD" : "EURUSD", BigDecimal.valueOf(i)));
+                            handedOver.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed
+                    }
+                }));
+            }
+            producers.forEach(Thread::start);
+            Thread.sleep(1);
+
+            // when
+            closingRegistry.close();
+            for (var producer : producers) producer.join();
+
+            // then
+            assertEquals(handedOver.get(), closingRegistry.getShardMetrics().stream().mapToLong(shard -> shard.appliedEvents).sum());
+        }
+    }
+
+    private static MarketData marketData(String source, String instrument, BigDecimal price) {
+        return new MarketData(source, instrument, List.of(new PriceLevel(price, 1, BUY)));
+    }
+}
@@ -0,0 +1,197 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OrderBookSnapshotTest {
+
+    private final Path snapshot;
+    private final Path journal;
+
+    OrderBookSnapshotTest() throws IOException {
+        snapshot = Files.createTempFile("orderbook", ".snapshot");
+        journal = Files.createTempFile("orderbook", ".journal");
+        Files.delete(snapshot);
+        Files.delete(journal);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(journal);
+    }
+
+    @Test
+    void should_restore_orders_and_versions_of_every_book() throws Exception {
+        // given
+        var audusd = new OrderBook("AUDUSD");
+        audusd.handleMarketDataEvent(marketData("participant1", "AUDUSD", new PriceLevel(TEN, 1, BUY), new PriceLevel(new BigDecimal("10.5"), 2, SELL)));
+        audusd.handleMarketDataEvent(marketData("participant2", "AUDUSD", new PriceLevel(new BigDecimal("10.0"), 3, BUY)));
+        audusd.handleMarketDataEvent(marketData("participant3", "AUDUSD", new PriceLevel(ONE, 4, SELL)));
+        audusd.handleMarketDataEvent(marketData("participant3", "AUDUSD"));
+        var eurusd = new OrderBook("EURUSD", PriceScale.of(4));
+        eurusd.handleMarketDataEvent(marketData("participant1", "EURUSD", new PriceLevel(new BigDecimal("1.1012"), 5, BUY), new PriceLevel(new BigDecimal("1.1015"), 6, SELL)));
+
+        // when
+        OrderBookSnapshot.write(snapshot, List.of(audusd, eurusd), 42);
+        var restored = OrderBookSnapshot.read(snapshot, instrument -> instrument.equals("EURUSD") ? new OrderBook(instrument, PriceScale.of(4)) : new OrderBook(instrument));
+
+        // then
+        assertEquals(42, restored.journalSequence);
+        assertEquals(List.of("AUDUSD", "EURUSD"), List.copyOf(restored.books.keySet()));
+        assertSameBook(audusd, restored.books.get("AUDUSD"));
+        assertSameBook(eurusd, restored.books.get("EURUSD"));
+    }
+
+    @Test
+    void should_rebuild_book_from_snapshot_and_journal_tail() throws Exception {
+        // given
+        var events = List.of(
+                marketData("participant1", "AUDUSD", new PriceLevel(TEN, 1, BUY), new PriceLevel(new BigDecimal("10.5"), 2, SELL)),
+                marketData("participant2", "AUDUSD", new PriceLevel(new BigDecimal("9.5"), 3, BUY)),
+                marketData("participant1", "AUDUSD", new PriceLevel(new BigDecimal("10.25"), 4, SELL)),
+                marketData("participant3", "AUDUSD", new PriceLevel(new BigDecimal("9.75"), 5, BUY)),
+                marketData("participant2", "AUDUSD")
+        );
+        var orderBook = new OrderBook("AUDUSD");
+        try (var marketDataJournal = new MarketDataJournal(journal, 128 * 1024, 16, Thread::new)) {
+            for (int i = 0; i < events.size(); i++) {
+                orderBook.handleMarketDataEvent(events.get(i));
+                marketDataJournal.append(events.get(i));
+                if (i == 2) OrderBookSnapshot.write(snapshot, List.of(orderBook), i + 1);
+            }
+        }
+
+        // when
+        var restored = OrderBookSnapshot.read(snapshot, OrderBook::new);
+        var coldStarted = restored.books.get("AUDUSD");
+        JournalReplay.replay(journal, coldStarted, restored.journalSequence + 1, Long.MAX_VALUE);
+
+        // then
+        assertEquals(orderBook.getOrdersBySide(BUY).toString(), coldStarted.getOrdersBySide(BUY).toString());
+        assertEquals(orderBook.getOrdersBySide(SELL).toString(), coldStarted.getOrdersBySide(SELL).toString());
+    }
+
+    @Test
+    void should_not_restore__when_book_was_already_used() throws Exception {
+        // given
+        var orderBook = new OrderBook("AUDUSD");
+        orderBook.handleMarketDataEvent(marketData("participant1", "AUDUSD", new PriceLevel(TEN, 1, BUY)));
+        OrderBookSnapshot.write(snapshot, List.of(orderBook), 1);
+
+        // when / then
+        assertThrows(IllegalStateException.class, () -> OrderBookSnapshot.read(snapshot, instrument -> orderBook));
+    }
+
+    @Test
+    void should_not_read_file_that_is_not_snapshot() throws Exception {
+        // given
+        Files.write(snapshot, new byte[64]);
+
+        // when / then
+        assertThrows(IOException.class, () -> OrderBookSnapshot.read(snapshot, OrderBook::new));
+    }
+
+    @Test
+    void should_keep_permissions_of_replaced_snapshot() throws Exception {
+        // given
+        assumeTrue(snapshot.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        var orderBook = new OrderBook("AUDUSD");
+        orderBook.handleMarketDataEvent(marketData("participant1", "AUDUSD", new PriceLevel(TEN, 1, BUY)));
+        OrderBookSnapshot.write(snapshot, List.of(orderBook), 0);
+        var created = Files.getPosixFilePermissions(snapshot);
+        Files.setPosixFilePermissions(snapshot, PosixFilePermissions.fromString("rw-rw-r--"));
+
+        // when
+        OrderBookSnapshot.write(snapshot, List.of(orderBook), 1);
+
+        // then
+        assertEquals(PosixFilePermissions.fromString("rw-r--r--"), created);
+        assertEquals(PosixFilePermissions.fromString("rw-rw-r--"), Files.getPosixFilePermissions(snapshot));
+    }
+
+    @Test
+    void should_leave_temporary_file_of_other_writer_alone() throws Exception {
+        // given
+        var orderBook = new OrderBook("AUDUSD");
+        orderBook.handleMarketDataEvent(marketData("participant1", "AUDUSD", new PriceLevel(TEN, 1, BUY)));
+        var otherWriterFile = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        Files.write(otherWriterFile, new byte[]{1});
+
+        try {
+            // when
+            OrderBookSnapshot.write(snapshot, List.of(orderBook), 7);
+
+            // then
+            assertEquals(7, OrderBookSnapshot.read(snapshot, OrderBook::new).journalSequence);
+            assertTrue(Files.exists(otherWriterFile));
+        } finally {
+            Files.deleteIfExists(otherWriterFile);
+        }
+    }
+
+    @Test
+    void should_write_snapshots_from_many_threads_to_same_path() throws Exception {
+        // given
+        var orderBook = new OrderBook("AUDUSD");
+        orderBook.handleMarketDataEvent(marketData("participant1", "AUDUSD", new PriceLevel(TEN, 1, BUY)));
+        var failures = new AtomicInteger();
+        var writers = new ArrayList<Thread>();
+        for (int writer = 0; writer < 4; writer++) {
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    try {
+                        OrderBookSnapshot.write(snapshot, List.of(orderBook), i);
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        // when
+        writers.forEach(Thread::start);
+        for (var writer : writers) writer.join();
+
+        // then
+        assertEquals(0, failures.get());
+        assertEquals(19, OrderBookSnapshot.read(snapshot, OrderBook::new).journalSequence);
+        try (var files = Files.list(snapshot.getParent())) {
+            assertEquals(0, files.filter(file -> file.getFileName().toString().startsWith(snapshot.getFileName().toString()))
+                    .filter(file -> file.getFileName().toString().endsWith(".tmp"))
+                    .count());
+        }
+    }
+
+    private static void assertSameBook(OrderBook expected, OrderBook actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getOrdersBySide(BUY).toString(), actual.getOrdersBySide(BUY).toString());
+        assertEquals(expected.getOrdersBySide(SELL).toString(), actual.getOrdersBySide(SELL).toString());
+        assertEquals(expected.getTopOfBook().bids.toString(), actual.getTopOfBook().bids.toString());
+        assertEquals(expected.getTopOfBook().offers.toString(), actual.getTopOfBook().offers.toString());
+    }
+
+    private static MarketData marketData(String source, String instrument, PriceLevel... priceLevels) {
+        return new MarketData(source, instrument, List.of(priceLevels));
+    }
+}
@@ -1,5 +1,6 @@
 package orderbook;
 
+import orderbook.marketdata.LevelUpdate;
 import orderbook.marketdata.MarketData;
 import orderbook.marketdata.PriceLevel;
 import orderbook.marketdata.Side;
@@ -8,7 +9,13 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
 
 import static java.math.BigDecimal.ONE;
 import static java.math.BigDecimal.TEN;
@@ -107,6 +114,46 @@ class OrderBookTest {
     }
 
 
+    @Test
+    void should_handle_market_data_batch_like_single_events() {
+        // given
+        givenInitialMarketDataSet();
+        var batch = List.of(
+                new MarketData("participant1", "AUDUSD", List.of(new PriceLevel(ONE, 1, BUY))),
+                new MarketData("participant2", "AUDUSD", List.of(new PriceLevel(TEN, 2, SELL))),
+                new MarketData("participant1", "AUDUSD", List.of(new PriceLevel(TEN, 3, BUY)))
+        );
+
+        // when
+        orderBook.handleMarketDataBatch(batch);
+
+        // then
+        assertEquals(1, orderBook.getOrdersBySide(BUY).size());
+        assertSame(batch.get(2).priceList.get(0), orderBook.getOrdersBySide(BUY).get(0).priceLevel);
+        assertEquals(1, orderBook.getOrdersBySide(SELL).size());
+        assertSame(batch.get(1).priceList.get(0), orderBook.getOrdersBySide(SELL).get(0).priceLevel);
+        assertEquals(3, orderBook.getTotalQuantityForPriceAndSide(TEN, BUY));
+        assertEquals(TEN, orderBook.getVwapForQuantityAndSide(2, SELL));
+    }
+
+    @Test
+    void should_not_apply_any_event_of_batch__when_one_is_invalid() {
+        // given
+        givenInitialMarketDataSet();
+        var batch = List.of(
+                new MarketData("participant2", "AUDUSD", List.of(new PriceLevel(ONE, 1, BUY))),
+                new MarketData("participant1", "EURUSD", emptyList())
+        );
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> orderBook.handleMarketDataBatch(batch));
+
+        // then
+        assertEquals("Incorrect instrument, AUDUSD required, but EURUSD provided", exception.getMessage());
+        assertEquals(1, orderBook.getOrdersBySide(BUY).size());
+        assertEquals("participant1", orderBook.getOrdersBySide(BUY).get(0).source);
+    }
+
     @Test
     void should_remove_data__on_empty_market_data_event() {
         // given
@@ -209,6 +256,38 @@ class OrderBookTest {
         );
     }
 
+    @ParameterizedTest
+    @EnumSource
+    void should_keep_same_order_as_full_sort__after_incremental_updates(Side side) {
+        // given
+        var random = new Random(7);
+        var latestBySource = new HashMap<String, MarketData>();
+        var comparator = side == BUY ? OrderBook.BID_COMPARATOR : OrderBook.OFFER_COMPARATOR;
+
+        for (int i = 0; i < 200; i++) {
+            var source = "participant" + random.nextInt(20);
+            var priceList = IntStream.range(0, random.nextInt(8))
+                    .mapToObj(level -> new PriceLevel(BigDecimal.valueOf(1 + random.nextInt(5)), 1 + random.nextInt(3), side))
+                    .collect(toUnmodifiableList());
+            var marketData = new MarketData(source, "AUDUSD", priceList);
+
+            // when
+            orderBook.handleMarketDataEvent(marketData);
+            latestBySource.put(source, marketData);
+
+            // then
+            var expected = latestBySource.values().stream()
+                    .flatMap(data -> data.priceList.stream().map(price -> new Order(data.source, price)))
+                    .sorted(comparator)
+                    .map(order -> order.source + order.priceLevel)
+                    .collect(toUnmodifiableList());
+            var actual = orderBook.getOrdersBySide(side).stream()
+                    .map(order -> order.source + order.priceLevel)
+                    .collect(toUnmodifiableList());
+            assertEquals(expected, actual);
+        }
+    }
+
     @Test
     void should_return_0_quantity__when_no_matching_price() {
         // given
@@ -255,6 +334,77 @@ class OrderBookTest {
         assertEquals(4, orderBook.getTotalQuantityForPriceAndSide(ONE, side));
     }
 
+    @Test
+    void should_aggregate_depth_by_price() {
+        // given
+        orderBook.handleMarketDataEvent(new MarketData(
+                "participant1",
+                "AUDUSD",
+                List.of(
+                        new PriceLevel(TEN, 1, BUY),
+                        new PriceLevel(new BigDecimal("10.0"), 2, BUY),
+                        new PriceLevel(ONE, 3, BUY)
+                )
+        ));
+        orderBook.handleMarketDataEvent(new MarketData(
+                "participant2",
+                "AUDUSD",
+                List.of(
+                        new PriceLevel(BigDecimal.valueOf(20), 4, BUY),
+                        new PriceLevel(TEN, 5, BUY)
+                )
+        ));
+
+        // when
+        var depth = orderBook.getDepthBySide(BUY, 2);
+
+        // then
+        assertEquals(2, depth.size());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(depth.get(0).price));
+        assertEquals(4, depth.get(0).quantity);
+        assertEquals(1, depth.get(0).sources);
+        assertEquals(0, TEN.compareTo(depth.get(1).price));
+        assertEquals(8, depth.get(1).quantity);
+        assertEquals(2, depth.get(1).sources);
+        assertEquals(8, orderBook.getTotalQuantityForPriceAndSide(new BigDecimal("10.000"), BUY));
+        assertEquals(3, orderBook.getDepthBySide(BUY, 10).size());
+        assertTrue(orderBook.getDepthBySide(SELL, 10).isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource
+    void should_keep_depth_consistent_with_orders__after_incremental_updates(Side side) {
+        // given
+        var random = new Random(11);
+
+        for (int i = 0; i < 200; i++) {
+            var priceList = IntStream.range(0, random.nextInt(6))
+                    .mapToObj(level -> new PriceLevel(BigDecimal.valueOf(1 + random.nextInt(6), random.nextInt(2)), 1 + random.nextInt(3), side))
+                    .collect(toUnmodifiableList());
+
+            // when
+            orderBook.handleMarketDataEvent(new MarketData("participant" + random.nextInt(10), "AUDUSD", priceList));
+
+            // then
+            var orders = orderBook.getOrdersBySide(side);
+            var depth = orderBook.getDepthBySide(side, Integer.MAX_VALUE);
+            assertEquals(orders.stream().map(order -> order.priceLevel.price.stripTrailingZeros()).distinct().count(), depth.size());
+            for (var level : depth) {
+                var atPrice = orders.stream()
+                        .filter(order -> order.priceLevel.price.compareTo(level.price) == 0)
+                        .collect(toUnmodifiableList());
+                assertEquals(atPrice.stream().mapToLong(order -> order.priceLevel.quantity).sum(), level.quantity);
+                assertEquals(atPrice.stream().map(order -> order.source).distinct().count(), level.sources);
+                assertEquals(level.quantity, orderBook.getTotalQuantityForPriceAndSide(level.price, side));
+                assertEquals(0, atPrice.get(0).priceLevel.price.compareTo(level.price));
+            }
+            assertEquals(
+                    orders.stream().map(order -> order.priceLevel.price.stripTrailingZeros()).distinct().collect(toUnmodifiableList()),
+                    depth.stream().map(level -> level.price.stripTrailingZeros()).collect(toUnmodifiableList())
+            );
+        }
+    }
+
     @Test
     void should_return_0_VWAP__when_no_matching_quantity() {
         // given
@@ -301,6 +451,309 @@ class OrderBookTest {
         assertEquals(TEN, orderBook.getVwapForQuantityAndSide(1, side));
     }
 
+    @ParameterizedTest
+    @EnumSource
+    void should_sort_scaled_prices_like_decimal_prices(Side side) {
+        // given
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(2));
+        var marketData1 = new MarketData(
+                "participant1",
+                "AUDUSD",
+                List.of(
+                        new PriceLevel(new BigDecimal("20.5"), 1, side),
+                        new PriceLevel(BigDecimal.valueOf(10), 2, side),
+                        new PriceLevel(new BigDecimal("5.00"), 10, side)
+                )
+        );
+        var marketData2 = new MarketData(
+                "participant2",
+                "AUDUSD",
+                List.of(
+                        new PriceLevel(new BigDecimal("10.00"), 2, side),
+                        new PriceLevel(new BigDecimal("20.50"), 1, side),
+                        new PriceLevel(new BigDecimal("5.01"), 10, side)
+                )
+        );
+
+        // when
+        List.of(marketData1, marketData2).forEach(marketData -> {
+            orderBook.handleMarketDataEvent(marketData);
+            scaledOrderBook.handleMarketDataEvent(marketData);
+        });
+
+        // then
+        assertEquals(
+                orderBook.getOrdersBySide(side).stream().map(order -> order.priceLevel).collect(toUnmodifiableList()),
+                scaledOrderBook.getOrdersBySide(side).stream().map(order -> order.priceLevel).collect(toUnmodifiableList())
+        );
+        assertEquals(4, scaledOrderBook.getTotalQuantityForPriceAndSide(BigDecimal.valueOf(10), side));
+        assertEquals(2, scaledOrderBook.getTotalQuantityForPriceAndSide(new BigDecimal("20.500"), side));
+        assertEquals(0, scaledOrderBook.getTotalQuantityForPriceAndSide(new BigDecimal("20.501"), side));
+    }
+
+    @Test
+    void should_not_accept_price_unrepresentable_in_scale() {
+        // given
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(2));
+        var marketData = new MarketData("participant1", "AUDUSD", List.of(new PriceLevel(new BigDecimal("1.001"), 1, BUY)));
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> scaledOrderBook.handleMarketDataEvent(marketData));
+        assertTrue(scaledOrderBook.getOrdersBySide(BUY).isEmpty());
+    }
+
+    @Test
+    void should_calculate_scaled_VWAP__beyond_long_range() {
+        // given
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(5));
+        var quantity = 1_000_000_000L;
+        scaledOrderBook.handleMarketDataEvent(new MarketData(
+                "participant1", "AUDUSD", List.of(new PriceLevel(new BigDecimal("1000000.00001"), quantity, SELL))
+        ));
+        scaledOrderBook.handleMarketDataEvent(new MarketData(
+                "participant2", "AUDUSD", List.of(new PriceLevel(new BigDecimal("1000000.00002"), quantity, SELL))
+        ));
+
+        // when / then
+        assertEquals(new BigDecimal("1000000.00002"), scaledOrderBook.getVwapForQuantityAndSide(quantity, SELL));
+        assertEquals(ZERO, scaledOrderBook.getVwapForQuantityAndSide(1, SELL));
+    }
+
+    @ParameterizedTest
+    @EnumSource
+    void should_calculate_VWAP_like_full_scan__after_incremental_updates(Side side) {
+        // given
+        var random = new Random(13);
+
+        for (int i = 0; i < 300; i++) {
+            var priceList = IntStream.range(0, random.nextInt(6))
+                    .mapToObj(level -> new PriceLevel(BigDecimal.valueOf(1 + random.nextInt(1000), random.nextInt(4)), 1 + random.nextInt(3), side))
+                    .collect(toUnmodifiableList());
+
+            // when
+            orderBook.handleMarketDataEvent(new MarketData("participant" + random.nextInt(10), "AUDUSD", priceList));
+
+            // then
+            for (long quantity = 1; quantity <= 4; quantity++) {
+                var finalQuantity = quantity;
+                var matching = orderBook.getOrdersBySide(side).stream()
+                        .filter(order -> order.priceLevel.quantity == finalQuantity)
+                        .collect(toUnmodifiableList());
+                var expected = matching.isEmpty() ? ZERO : matching.stream()
+                        .map(order -> order.priceLevel.price.multiply(BigDecimal.valueOf(order.priceLevel.quantity)))
+                        .reduce(ZERO, BigDecimal::add)
+                        .divide(BigDecimal.valueOf(quantity * matching.size()), RoundingMode.HALF_EVEN);
+                assertEquals(expected, orderBook.getVwapForQuantityAndSide(quantity, side));
+            }
+        }
+    }
+
+    @Test
+    void should_sweep_levels_best_price_first() {
+        // given
+        orderBook.handleMarketDataEvent(new MarketData("participant1", "AUDUSD", List.of(
+                new PriceLevel(new BigDecimal("1.10"), 2, SELL),
+                new PriceLevel(new BigDecimal("1.12"), 5, SELL)
+        )));
+        orderBook.handleMarketDataEvent(new MarketData("participant2", "AUDUSD", List.of(
+                new PriceLevel(new BigDecimal("1.1"), 3, SELL),
+                new PriceLevel(new BigDecimal("1.11"), 1, SELL)
+        )));
+
+        // when / then
+        assertEquals(new BigDecimal("1.10"), orderBook.getSweepPriceForQuantityAndSide(5, SELL).orElseThrow());
+        assertEquals(new BigDecimal("1.11"), orderBook.getSweepPriceForQuantityAndSide(6, SELL).orElseThrow());
+        assertEquals(new BigDecimal("1.12"), orderBook.getSweepPriceForQuantityAndSide(7, SELL).orElseThrow());
+        assertEquals(new BigDecimal("1.11"), orderBook.getSweepVwapForQuantityAndSide(8, SELL).orElseThrow());
+        assertTrue(orderBook.getSweepVwapForQuantityAndSide(12, SELL).isEmpty());
+        assertTrue(orderBook.getSweepPriceForQuantityAndSide(1, BUY).isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource
+    void should_sweep_like_walking_orders__after_incremental_updates(Side side) {
+        // given
+        var random = new Random(17);
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(3));
+
+        for (int i = 0; i < 300; i++) {
+            var priceList = IntStream.range(0, random.nextInt(6))
+                    .mapToObj(level -> new PriceLevel(BigDecimal.valueOf(1 + random.nextInt(1000), 3), 1 + random.nextInt(5), side))
+                    .collect(toUnmodifiableList());
+
+            // when
+            scaledOrderBook.handleMarketDataEvent(new MarketData("participant" + random.nextInt(10), "AUDUSD", priceList));
+
+            // then
+            for (long quantity = 1; quantity <= 40; quantity += 3) {
+                var remaining = quantity;
+                var notional = ZERO;
+                BigDecimal price = null;
+                for (var order : scaledOrderBook.getOrdersBySide(side)) {
+                    if (remaining == 0) break;
+
+                    var taken = Math.min(remaining, order.priceLevel.quantity);
+                    notional = notional.add(order.priceLevel.price.multiply(BigDecimal.valueOf(taken)));
+                    remaining -= taken;
+                    price = order.priceLevel.price;
+                }
+                var vwap = scaledOrderBook.getSweepVwapForQuantityAndSide(quantity, side);
+                if (remaining > 0) {
+                    assertTrue(vwap.isEmpty());
+                } else {
+                    assertEquals(notional.divide(BigDecimal.valueOf(quantity), 3, RoundingMode.HALF_EVEN), vwap.orElseThrow());
+                    assertEquals(price, scaledOrderBook.getSweepPriceForQuantityAndSide(quantity, side).orElseThrow());
+                }
+            }
+        }
+    }
+
+    @Test
+    void should_sweep_exactly__when_cumulative_quantity_exceeds_long() {
+        // given
+        var half = Long.MAX_VALUE / 2;
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(3));
+        scaledOrderBook.handleMarketDataEvent(new MarketData("participant1", "AUDUSD", List.of(
+                new PriceLevel(new BigDecimal("1.10"), half, SELL),
+                new PriceLevel(new BigDecimal("1.30"), half, SELL)
+        )));
+        scaledOrderBook.handleMarketDataEvent(new MarketData("participant2", "AUDUSD", List.of(
+                new PriceLevel(new BigDecimal("1.20"), half, SELL),
+                new PriceLevel(new BigDecimal("1.40"), half, SELL)
+        )));
+
+        // when / then
+        var prices = List.of(new BigDecimal("1.10"), new BigDecimal("1.20"), new BigDecimal("1.30"), new BigDecimal("1.40"));
+        for (var quantity : List.of(half, half + 1, Long.MAX_VALUE - 1, Long.MAX_VALUE)) {
+            var remaining = quantity;
+            var notional = ZERO;
+            BigDecimal price = null;
+            for (var levelPrice : prices) {
+                if (remaining == 0) break;
+
+                var taken = Math.min(remaining, half);
+                notional = notional.add(levelPrice.multiply(BigDecimal.valueOf(taken)));
+                remaining -= taken;
+                price = levelPrice;
+            }
+            assertEquals(notional.divide(BigDecimal.valueOf(quantity), 3, RoundingMode.HALF_EVEN), scaledOrderBook.getSweepVwapForQuantityAndSide(quantity, SELL).orElseThrow());
+            assertEquals(price, scaledOrderBook.getSweepPriceForQuantityAndSide(quantity, SELL).orElseThrow());
+        }
+    }
+
+    @Test
+    void should_not_sweep__for_quantity_that_is_not_positive() {
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> orderBook.getSweepVwapForQuantityAndSide(0, BUY));
+    }
+
+    @ParameterizedTest
+    @EnumSource
+    void should_apply_level_updates_like_full_market_data(Side side) {
+        // given
+        var random = new Random(19);
+        var reference = new OrderBook("AUDUSD", PriceScale.of(2));
+        var scaledOrderBook = new OrderBook("AUDUSD", PriceScale.of(2));
+        var levelsBySource = new HashMap<String, TreeMap<BigDecimal, Long>>();
+
+        for (int i = 0; i < 500; i++) {
+            var source = "participant" + random.nextInt(5);
+            var levels = levelsBySource.computeIfAbsent(source, key -> new TreeMap<>());
+            var price = BigDecimal.valueOf(100 + random.nextInt(20), 2);
+            var quantity = 1L + random.nextInt(3);
+            LevelUpdate levelUpdate;
+            if (!levels.containsKey(price)) {
+                levelUpdate = new LevelUpdate(source, "AUDUSD", LevelUpdate.Action.ADD, side, price, quantity);
+                levels.put(price, quantity);
+            } else if (random.nextBoolean()) {
+                levelUpdate = new LevelUpdate(source, "AUDUSD", LevelUpdate.Action.MODIFY, side, price, quantity);
+                levels.put(price, quantity);
+            } else {
+                levelUpdate = LevelUpdate.delete(source, "AUDUSD", side, price);
+                levels.remove(price);
+            }
+            var priceList = new ArrayList<PriceLevel>();
+            levels.forEach((levelPrice, levelQuantity) -> priceList.add(new PriceLevel(levelPrice, levelQuantity, side)));
+
+            // when
+            scaledOrderBook.handleLevelUpdate(levelUpdate);
+            reference.handleMarketDataEvent(new MarketData(source, "AUDUSD", priceList));
+
+            // then
+            assertEquals(reference.getOrdersBySide(side).toString(), scaledOrderBook.getOrdersBySide(side).toString());
+            assertEquals(reference.getDepthBySide(side, 20).toString(), scaledOrderBook.getDepthBySide(side, 20).toString());
+            assertEquals(reference.getVwapForQuantityAndSide(quantity, side), scaledOrderBook.getVwapForQuantityAndSide(quantity, side));
+        }
+    }
+
+    @Test
+    void should_reject_level_update__when_it_does_not_match_levels_of_source() {
+        // given
+        givenInitialMarketDataSet();
+
+        // when / then
+        assertThrows(IllegalArgumentException.class,
+                () -> orderBook.handleLevelUpdate(new LevelUpdate("participant1", "AUDUSD", LevelUpdate.Action.ADD, BUY, new BigDecimal("10.0"), 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderBook.handleLevelUpdate(new LevelUpdate("participant1", "AUDUSD", LevelUpdate.Action.MODIFY, SELL, TEN, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderBook.handleLevelUpdate(LevelUpdate.delete("participant2", "AUDUSD", BUY, TEN)));
+        assertEquals(1, orderBook.getVersion());
+    }
+
+    @Test
+    void should_keep_best_levels_in_top_of_book() {
+        // given
+        for (int price = 1; price <= 8; price++) {
+            orderBook.handleMarketDataEvent(new MarketData(
+                    "participant" + price,
+                    "AUDUSD",
+                    List.of(
+                            new PriceLevel(BigDecimal.valueOf(price), price, BUY),
+                            new PriceLevel(BigDecimal.valueOf(price), 1, BUY),
+                            new PriceLevel(BigDecimal.valueOf(10 + price), price, SELL)
+                    )
+            ));
+        }
+
+        // when
+        var topOfBook = orderBook.getTopOfBook();
+
+        // then
+        assertEquals(OrderBook.TOP_OF_BOOK_LEVELS, topOfBook.bids.size());
+        assertEquals(OrderBook.TOP_OF_BOOK_LEVELS, topOfBook.offers.size());
+        assertEquals(0, BigDecimal.valueOf(8).compareTo(topOfBook.best(BUY).orElseThrow().price));
+        assertEquals(9, topOfBook.best(BUY).orElseThrow().quantity);
+        assertEquals(0, BigDecimal.valueOf(11).compareTo(topOfBook.best(SELL).orElseThrow().price));
+        assertEquals(0, BigDecimal.valueOf(4).compareTo(topOfBook.bids.get(4).price));
+        assertEquals(orderBook.getDepthBySide(SELL, OrderBook.TOP_OF_BOOK_LEVELS).toString(), topOfBook.offers.toString());
+        assertEquals(orderBook.getVersion(), topOfBook.version);
+    }
+
+    @Test
+    void should_increase_version__only_when_book_changes() {
+        // given
+        var initialVersion = orderBook.getVersion();
+        givenInitialMarketDataSet();
+        var version = orderBook.getVersion();
+
+        // when
+        var topOfBook = orderBook.getTopOfBook();
+        orderBook.handleMarketDataEvent(new MarketData("participant2", "AUDUSD", emptyList()));
+
+        // then
+        assertTrue(version > initialVersion);
+        assertSame(topOfBook, orderBook.getTopOfBook());
+        assertEquals(version, orderBook.getVersion());
+
+        // when
+        orderBook.reset();
+
+        // then
+        assertTrue(orderBook.getVersion() > version);
+        assertTrue(orderBook.getTopOfBook().best(BUY).isEmpty());
+    }
+
     @Test
     void should_remove_data__on_reset() {
         // given
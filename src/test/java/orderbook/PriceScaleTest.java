@@ -0,0 +1,59 @@
+package orderbook;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PriceScaleTest {
+
+    private final PriceScale priceScale = PriceScale.of(5, 5);
+
+    @Test
+    void should_convert_price_to_scaled_price_and_back() {
+        // when
+        var scaledPrice = priceScale.toScaledPrice(new BigDecimal("1.23455"));
+
+        // then
+        assertEquals(123455, scaledPrice);
+        assertEquals(new BigDecimal("1.23455"), priceScale.toPrice(scaledPrice));
+    }
+
+    @Test
+    void should_accept_price_with_trailing_zeros_beyond_scale() {
+        // when / then
+        assertEquals(120000, priceScale.toScaledPrice(new BigDecimal("1.2000000")));
+    }
+
+    @Test
+    void should_not_accept_price_with_more_digits_than_scale() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> priceScale.toScaledPrice(new BigDecimal("1.234555")));
+
+        // then
+        assertEquals("Price 1.234555 is not a multiple of 5 with scale 5", exception.getMessage());
+    }
+
+    @Test
+    void should_not_accept_price_off_tick() {
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> priceScale.toScaledPrice(new BigDecimal("1.23451")));
+    }
+
+    @Test
+    void should_not_accept_price_overflowing_long() {
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> priceScale.toScaledPrice(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    void should_not_accept_non_positive_tick_size() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> PriceScale.of(2, 0));
+
+        // then
+        assertEquals("tickSize must be positive", exception.getMessage());
+    }
+}
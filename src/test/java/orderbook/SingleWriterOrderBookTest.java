@@ -0,0 +1,200 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.SingleWriterOrderBook.BackPressure.BLOCK;
+import static orderbook.SingleWriterOrderBook.BackPressure.DROP_OLDEST_PER_SOURCE;
+import static orderbook.SingleWriterOrderBook.BackPressure.REJECT;
+import static orderbook.marketdata.Side.BUY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleWriterOrderBookTest {
+
+    private final OrderBook orderBook = new OrderBook("AUDUSD");
+    private final CountDownLatch applierReleased = new CountDownLatch(1);
+    private SingleWriterOrderBook singleWriter;
+
+    @AfterEach
+    void tearDown() {
+        applierReleased.countDown();
+        if (singleWriter != null) singleWriter.close();
+    }
+
+    @Test
+    void should_apply_submitted_market_data() throws Exception {
+        // given
+        singleWriter = new SingleWriterOrderBook(orderBook, 16, BLOCK);
+        var marketData = marketData("participant1", TEN);
+
+        // when
+        singleWriter.submit(marketData).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertSame(marketData.priceList.get(0), orderBook.getOrdersBySide(BUY).get(0).priceLevel);
+    }
+
+    @Test
+    void should_not_accept_market_data_with_different_instrument() {
+        // given
+        singleWriter = new SingleWriterOrderBook(orderBook, 16, BLOCK);
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> singleWriter.offer(new MarketData("participant1", "EURUSD", List.of())));
+    }
+
+    @Test
+    void should_apply_events_from_many_producers() throws Exception {
+        // given
+        singleWriter = new SingleWriterOrderBook(orderBook, 8, BLOCK);
+        var producers = new ArrayList<Thread>();
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int producer = 0; producer < 4; producer++) {
+            var source = "participant" + producer;
+            producers.add(new Thread(() -> {
+                for (int i = 1; i <= 500; i++) {
+                    var future = singleWriter.submit(marketData(source, BigDecimal.valueOf(i)));
+                    synchronized (futures) {
+                        futures.add(future);
+                    }
+                }
+            }));
+        }
+
+        // when
+        producers.forEach(Thread::start);
+        for (var producer : producers) producer.join();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(4, orderBook.getOrdersBySide(BUY).size());
+        orderBook.getOrdersBySide(BUY).forEach(order -> assertEquals(BigDecimal.valueOf(500), order.priceLevel.price));
+    }
+
+    @Test
+    void should_reject_when_queue_is_full() {
+        // given
+        singleWriter = new SingleWriterOrderBook(orderBook, 2, REJECT, stalledApplier());
+        assertTrue(singleWriter.offer(marketData("participant1", ONE)));
+        assertTrue(singleWriter.offer(marketData("participant2", ONE)));
+
+        // when
+        var future = singleWriter.submit(marketData("participant3", ONE));
+
+        // then
+        var exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        assertFalse(singleWriter.offer(marketData("participant1", TEN)));
+        assertEquals(2, singleWriter.getRejectedCount());
+    }
+
+    @Test
+    void should_replace_pending_event_of_same_source_when_queue_is_full() throws Exception {
+        // given
+        singleWriter = new SingleWriterOrderBook(orderBook, 2, DROP_OLDEST_PER_SOURCE, stalledApplier());
+        var first = singleWriter.submit(marketData("participant1", ONE));
+        var second = singleWriter.submit(marketData("participant2", ONE));
+
+        // when
+        var latest = marketData("participant1", TEN);
+        var replaced = singleWriter.submit(latest);
+        var rejected = singleWriter.offer(marketData("participant3", ONE));
+        applierReleased.countDown();
+        CompletableFuture.allOf(replaced, second).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertTrue(first.isDone());
+        assertFalse(rejected);
+        assertEquals(1, singleWriter.getDroppedCount());
+        assertEquals(1, singleWriter.getRejectedCount());
+        assertEquals(2, orderBook.getOrdersBySide(BUY).size());
+        assertSame(latest.priceList.get(0), orderBook.getOrdersBySide(BUY).get(0).priceLevel);
+    }
+
+    @Test
+    void should_drain_queue_on_close() {
+        // given
+        singleWriter = new SingleWriterOrderBook(orderBook, 16, BLOCK);
+        for (int i = 0; i < 10; i++) singleWriter.offer(marketData("participant" + i, ONE));
+
+        // when
+        singleWriter.close();
+
+        // then
+        assertEquals(10, orderBook.getOrdersBySide(BUY).size());
+        assertThrows(IllegalStateException.class, () -> singleWriter.offer(marketData("participant1", ONE)));
+    }
+
+    @Test
+    void should_complete_every_accepted_submission__when_closed_while_producing() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            // given
+            var ingress = new SingleWriterOrderBook(new OrderBook("AUDUSD"), 1024, BLOCK);
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            var producers = new ArrayList<Thread>();
+            for (int producer = 0; producer < 4; producer++) {
+                var source = "participant" + producer;
+                producers.add(new Thread(() -> {
+                    try {
+                        for (int i = 1; ; i++) {
+                            var future = ingress.submit(marketData(source, BigDecimal.valueOf(i)));
+                            synchronized (futures) {
+                                futures.add(future);
+                            }
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed
+                    }
+                }));
+            }
+            producers.forEach(Thread::start);
+            Thread.sleep(1);
+
+            // when
+            ingress.close();
+            for (var producer : producers) producer.join();
+
+            // then
+            for (var future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof RejectedExecutionException);
+                }
+            }
+        }
+    }
+
+    private ThreadFactory stalledApplier() {
+        return runnable -> new Thread(() -> {
+            try {
+                applierReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runnable.run();
+        });
+    }
+
+    private static MarketData marketData(String source, BigDecimal price) {
+        return new MarketData(source, "AUDUSD", List.of(new PriceLevel(price, 1, BUY)));
+    }
+}
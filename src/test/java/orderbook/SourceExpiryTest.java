@@ -0,0 +1,172 @@
+package orderbook;
+
+import orderbook.marketdata.LevelUpdate;
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceExpiryTest {
+
+    private static final long TICK_NANOS = Duration.ofMillis(10).toNanos();
+    private static final Duration TIME_TO_LIVE = Duration.ofSeconds(1);
+
+    private final HashedTimerWheel wheel = new HashedTimerWheel(Duration.ofNanos(TICK_NANOS), 64);
+    private final MetricsRecorder metrics = new MetricsRecorder();
+    private final OrderBook orderBook = new OrderBook("AUDUSD", metrics);
+
+    SourceExpiryTest() {
+        orderBook.expireSilentSources(wheel, TIME_TO_LIVE);
+    }
+
+    @Test
+    void should_remove_silent_sources_in_one_publication() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+        orderBook.handleMarketDataEvent(marketData("participant2", new PriceLevel(ONE, 2, SELL)));
+        advanceBy(Duration.ofMillis(500));
+        orderBook.handleMarketDataEvent(marketData("participant3", new PriceLevel(TEN, 3, BUY)));
+
+        // when
+        advanceBy(Duration.ofMillis(600));
+
+        // then
+        assertEquals(List.of("participant3"), sources(orderBook.getOrdersBySide(BUY)));
+        assertTrue(orderBook.getOrdersBySide(SELL).isEmpty());
+        assertEquals(4, orderBook.getVersion());
+        assertEquals(2, metrics.getExpiredSourceCount());
+    }
+
+    @Test
+    void should_keep_source__when_it_was_updated_within_time_to_live() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            advanceBy(Duration.ofMillis(700));
+            orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 2 + i, BUY)));
+        }
+
+        // then
+        assertEquals(List.of("participant1"), sources(orderBook.getOrdersBySide(BUY)));
+        assertEquals(0, metrics.getExpiredSourceCount());
+
+        advanceBy(Duration.ofMillis(1100));
+        assertTrue(orderBook.getOrdersBySide(BUY).isEmpty());
+    }
+
+    @Test
+    void should_expire_source_again__after_it_came_back() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+        advanceBy(Duration.ofMillis(1100));
+
+        // when
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 2, BUY)));
+        advanceBy(Duration.ofMillis(500));
+        var quotedAfterReturn = orderBook.getOrdersBySide(BUY).size();
+        advanceBy(Duration.ofMillis(600));
+
+        // then
+        assertEquals(1, quotedAfterReturn);
+        assertTrue(orderBook.getOrdersBySide(BUY).isEmpty());
+        assertEquals(2, metrics.getExpiredSourceCount());
+    }
+
+    @Test
+    void should_expire_source__when_its_level_updates_are_rejected() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+        advanceBy(Duration.ofMillis(700));
+
+        // when
+        assertThrows(IllegalArgumentException.class, () -> orderBook.handleLevelUpdate(LevelUpdate.delete("participant1", "AUDUSD", BUY, ONE)));
+        advanceBy(Duration.ofMillis(400));
+
+        // then
+        assertTrue(orderBook.getOrdersBySide(BUY).isEmpty());
+        assertEquals(1, metrics.getExpiredSourceCount());
+    }
+
+    @Test
+    void should_keep_source__when_its_level_updates_are_applied() {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY)));
+        advanceBy(Duration.ofMillis(700));
+
+        // when
+        orderBook.handleLevelUpdate(new LevelUpdate("participant1", "AUDUSD", LevelUpdate.Action.ADD, BUY, ONE, 5));
+        advanceBy(Duration.ofMillis(400));
+
+        // then
+        assertEquals(2, orderBook.getOrdersBySide(BUY).size());
+        assertEquals(0, metrics.getExpiredSourceCount());
+    }
+
+    @Test
+    void should_keep_expiry__when_it_races_with_exclusive_apply() throws Exception {
+        for (int round = 0; round < 2_000; round++) {
+            // given
+            var book = new OrderBook("AUDUSD");
+            book.applyExclusively(marketData("silent", new PriceLevel(ONE, 1, BUY)));
+            var start = new CyclicBarrier(2);
+            var expiry = new Thread(() -> {
+                await(start);
+                book.expireSources(List.of(0), sourceId -> true);
+            });
+            expiry.start();
+
+            // when
+            await(start);
+            book.applyExclusively(marketData("live", new PriceLevel(TEN, 1, BUY)));
+            book.applyBatchExclusively(List.of(marketData("live", new PriceLevel(TEN, 2, BUY))));
+            expiry.join();
+
+            // then
+            assertEquals(List.of("live"), sources(book.getOrdersBySide(BUY)));
+        }
+    }
+
+    @Test
+    void should_not_expire_sources_twice() {
+        // when / then
+        assertThrows(IllegalStateException.class, () -> orderBook.expireSilentSources(wheel, TIME_TO_LIVE));
+    }
+
+    private void advanceBy(Duration duration) {
+        // in steps of a tick, like the ticker thread would
+        var target = wheel.time() + duration.toNanos();
+        for (var time = wheel.time() + TICK_NANOS; time < target; time += TICK_NANOS) wheel.advanceTo(time);
+        wheel.advanceTo(target);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> sources(List<Order> orders) {
+        return orders.stream().map(order -> order.source).collect(toUnmodifiableList());
+    }
+
+    private static MarketData marketData(String source, PriceLevel... priceLevels) {
+        return new MarketData(source, "AUDUSD", List.of(priceLevels));
+    }
+}
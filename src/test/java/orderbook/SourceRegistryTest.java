@@ -0,0 +1,47 @@
+package orderbook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SourceRegistryTest {
+
+    private final SourceRegistry sources = new SourceRegistry();
+
+    @Test
+    void should_assign_dense_ids_in_order_of_first_appearance() {
+        // when
+        var c = sources.idOf("C");
+        var a = sources.idOf("A");
+        var cAgain = sources.idOf("C");
+
+        // then
+        assertEquals(0, c);
+        assertEquals(1, a);
+        assertEquals(c, cAgain);
+        assertEquals("A", sources.source(a));
+        assertEquals(2, sources.size());
+    }
+
+    @Test
+    void should_compare_ids_like_source_strings__when_registered_in_any_order() {
+        // given
+        var random = new Random(3);
+        var names = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            var name = "S" + random.nextInt(1_000);
+            names.add(name);
+            sources.idOf(name);
+        }
+
+        // when / then
+        for (var name1 : names) {
+            for (var name2 : names) {
+                assertEquals(Integer.signum(name1.compareTo(name2)), Integer.signum(sources.compare(sources.idOf(name1), sources.idOf(name2))));
+            }
+        }
+    }
+}
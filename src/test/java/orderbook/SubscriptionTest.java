@@ -0,0 +1,163 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.math.BigDecimal.ONE;
+import static java.math.BigDecimal.TEN;
+import static orderbook.LevelChange.Type.ADDED;
+import static orderbook.LevelChange.Type.CHANGED;
+import static orderbook.LevelChange.Type.REMOVED;
+import static orderbook.Subscription.Mode.FULL_DEPTH;
+import static orderbook.Subscription.Mode.TOP_OF_BOOK;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionTest {
+
+    private final OrderBook orderBook = new OrderBook("AUDUSD");
+    private final BlockingQueue<BookDelta> deltas = new LinkedBlockingQueue<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(Subscription::close);
+    }
+
+    @Test
+    void should_deliver_added_changed_and_removed_levels() throws Exception {
+        // given
+        subscriptions.add(orderBook.subscribe(deltas::add, FULL_DEPTH));
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY), new PriceLevel(ONE, 2, BUY)));
+
+        // when
+        orderBook.handleMarketDataEvent(marketData("participant2", new PriceLevel(new BigDecimal("10.0"), 3, BUY), new PriceLevel(TEN, 4, SELL)));
+        orderBook.handleMarketDataEvent(marketData("participant1"));
+
+        // then
+        var first = next();
+        assertEquals(1, first.version);
+        assertEquals(List.of(ADDED, ADDED), types(first.bidChanges));
+        assertTrue(first.offerChanges.isEmpty());
+
+        var second = next();
+        assertEquals(2, second.version);
+        assertEquals(List.of(CHANGED), types(second.bidChanges));
+        assertEquals(4, second.bidChanges.get(0).quantity);
+        assertEquals(2, second.bidChanges.get(0).sources);
+        assertEquals(List.of(ADDED), types(second.offerChanges));
+
+        var third = next();
+        assertEquals(3, third.version);
+        assertEquals(List.of(CHANGED, REMOVED), types(third.bidChanges));
+        assertEquals(0, TEN.compareTo(third.bidChanges.get(0).price));
+        assertEquals(3, third.bidChanges.get(0).quantity);
+        assertEquals(ONE, third.bidChanges.get(1).price);
+        assertEquals(0, third.bidChanges.get(1).quantity);
+        assertEquals(third.version, third.topOfBook.version);
+    }
+
+    @Test
+    void should_deliver_only_top_of_book_changes__when_subscribed_to_top_of_book() throws Exception {
+        // given
+        subscriptions.add(orderBook.subscribe(deltas::add, TOP_OF_BOOK));
+        var levels = new ArrayList<PriceLevel>();
+        for (int price = 1; price <= OrderBook.TOP_OF_BOOK_LEVELS; price++) levels.add(new PriceLevel(BigDecimal.valueOf(10 + price), 1, BUY));
+        orderBook.handleMarketDataEvent(new MarketData("participant1", "AUDUSD", levels));
+
+        // when
+        orderBook.handleMarketDataEvent(marketData("participant2", new PriceLevel(ONE, 1, BUY)));
+        orderBook.handleMarketDataEvent(marketData("participant3", new PriceLevel(BigDecimal.valueOf(20), 1, BUY)));
+
+        // then
+        assertEquals(1, next().version);
+        var delta = next();
+        assertEquals(3, delta.version);
+        assertTrue(delta.topOfBookChanged);
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(delta.topOfBook.best(BUY).orElseThrow().price));
+    }
+
+    @Test
+    void should_remove_every_level__on_reset() throws Exception {
+        // given
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(TEN, 1, BUY), new PriceLevel(ONE, 2, SELL)));
+        subscriptions.add(orderBook.subscribe(deltas::add, FULL_DEPTH));
+
+        // when
+        orderBook.reset();
+
+        // then
+        var delta = next();
+        assertEquals(List.of(REMOVED), types(delta.bidChanges));
+        assertEquals(List.of(REMOVED), types(delta.offerChanges));
+        assertTrue(delta.topOfBook.best(BUY).isEmpty());
+    }
+
+    @Test
+    void should_not_block_ingest_and_report_lost_deltas__when_listener_is_slow() throws Exception {
+        // given
+        var listenerEntered = new CountDownLatch(1);
+        var listenerReleased = new CountDownLatch(1);
+        var lostAt = new LinkedBlockingQueue<TopOfBook>();
+        var subscription = orderBook.subscribe(new BookListener() {
+            @Override
+            public void onBookChange(BookDelta delta) {
+                listenerEntered.countDown();
+                try {
+                    listenerReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onDeltasLost(TopOfBook topOfBook) {
+                lostAt.add(topOfBook);
+            }
+        }, FULL_DEPTH);
+        subscriptions.add(subscription);
+        orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(ONE, 1, BUY)));
+        assertTrue(listenerEntered.await(5, TimeUnit.SECONDS));
+
+        // when
+        for (int i = 2; i <= 3 * DeltaPublisher.CAPACITY; i++) {
+            orderBook.handleMarketDataEvent(marketData("participant1", new PriceLevel(BigDecimal.valueOf(i), 1, BUY)));
+        }
+        listenerReleased.countDown();
+
+        // then
+        var topOfBook = lostAt.poll(5, TimeUnit.SECONDS);
+        assertNotNull(topOfBook);
+        assertEquals(3 * DeltaPublisher.CAPACITY, topOfBook.version);
+        assertEquals(topOfBook.version - 1, subscription.getLostCount());
+    }
+
+    private BookDelta next() throws InterruptedException {
+        var delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delta);
+        return delta;
+    }
+
+    private static List<LevelChange.Type> types(List<LevelChange> changes) {
+        var types = new ArrayList<LevelChange.Type>();
+        changes.forEach(change -> types.add(change.type));
+        return types;
+    }
+
+    private static MarketData marketData(String source, PriceLevel... priceLevels) {
+        return new MarketData(source, "AUDUSD", List.of(priceLevels));
+    }
+}
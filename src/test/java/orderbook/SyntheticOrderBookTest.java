@@ -0,0 +1,196 @@
+package orderbook;
+
+import orderbook.marketdata.MarketData;
+import orderbook.marketdata.PriceLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticOrderBookTest {
+
+    private final OrderBook eurusd = new OrderBook("EURUSD");
+    private final OrderBook usdjpy = new OrderBook("USDJPY");
+    private final OrderBook gbpusd = new OrderBook("GBPUSD");
+    private final List<SyntheticOrderBook> syntheticOrderBooks = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        syntheticOrderBooks.forEach(SyntheticOrderBook::close);
+    }
+
+    @Test
+    void should_walk_best_levels_of_both_legs() throws Exception {
+        // given
+        var eurjpy = synthetic("EURJPY", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.of(usdjpy), 3);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(
+                new PriceLevel(new BigDecimal("1.10"), 1_000_000, BUY),
+                new PriceLevel(new BigDecimal("1.09"), 2_000_000, BUY)
+        )));
+        usdjpy.handleMarketDataEvent(new MarketData("participant1", "USDJPY", List.of(
+                new PriceLevel(new BigDecimal("150.00"), 550_000, BUY),
+                new PriceLevel(new BigDecimal("149.00"), 10_000_000, BUY)
+        )));
+        awaitVersion(eurjpy, 1);
+
+        // then
+        assertEquals(
+                "[PriceLevel{side=BUY, price=165.000, quantity=500000}, PriceLevel{side=BUY, price=163.900, quantity=500000}, " +
+                        "PriceLevel{side=BUY, price=162.410, quantity=2000000}]",
+                priceLevels(eurjpy.getOrdersBySide(BUY)).toString()
+        );
+        assertEquals(2_000_000, eurjpy.getTotalQuantityForPriceAndSide(new BigDecimal("162.41"), BUY));
+        assertEquals(new BigDecimal("164.450"), eurjpy.getVwapForQuantityAndSide(500_000, BUY));
+        assertTrue(eurjpy.getOrdersBySide(SELL).isEmpty());
+    }
+
+    @Test
+    void should_use_opposite_side_of_inverted_leg() throws Exception {
+        // given
+        var eurgbp = synthetic("EURGBP", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.inverted(gbpusd), 5);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(new PriceLevel(new BigDecimal("1.10"), 1_000_000, BUY))));
+        gbpusd.handleMarketDataEvent(new MarketData("participant1", "GBPUSD", List.of(
+                new PriceLevel(new BigDecimal("1.25"), 10_000_000, SELL),
+                new PriceLevel(new BigDecimal("1.20"), 10_000_000, BUY)
+        )));
+        awaitVersion(eurgbp, 1);
+
+        // then
+        assertEquals("[PriceLevel{side=BUY, price=0.88000, quantity=1000000}]", priceLevels(eurgbp.getOrdersBySide(BUY)).toString());
+    }
+
+    @Test
+    void should_keep_bid_on_tick__when_inverted_leg_gives_exact_cross() throws Exception {
+        // given
+        var eurgbp = synthetic("EURGBP", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.inverted(gbpusd), 5);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(new PriceLevel(new BigDecimal("1.30"), 1_000_000, BUY))));
+        gbpusd.handleMarketDataEvent(new MarketData("participant1", "GBPUSD", List.of(new PriceLevel(new BigDecimal("1.30"), 10_000_000, SELL))));
+        awaitVersion(eurgbp, 1);
+
+        // then
+        assertEquals("[PriceLevel{side=BUY, price=1.00000, quantity=1000000}]", priceLevels(eurgbp.getOrdersBySide(BUY)).toString());
+    }
+
+    @Test
+    void should_keep_offer_on_tick__when_inverted_leg_gives_exact_cross() throws Exception {
+        // given
+        var eurgbp = synthetic("EURGBP", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.inverted(gbpusd), 5);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(new PriceLevel(new BigDecimal("1.21"), 1_000_000, SELL))));
+        gbpusd.handleMarketDataEvent(new MarketData("participant1", "GBPUSD", List.of(new PriceLevel(new BigDecimal("1.10"), 10_000_000, BUY))));
+        awaitVersion(eurgbp, 1);
+
+        // then
+        assertEquals("[PriceLevel{side=SELL, price=1.10000, quantity=1000000}]", priceLevels(eurgbp.getOrdersBySide(SELL)).toString());
+        assertTrue(eurgbp.getOrdersBySide(BUY).isEmpty());
+    }
+
+    @Test
+    void should_round_offers_up() throws Exception {
+        // given
+        var eurjpy = synthetic("EURJPY", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.of(usdjpy), 2);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(new PriceLevel(new BigDecimal("1.1001"), 1_000_000, SELL))));
+        usdjpy.handleMarketDataEvent(new MarketData("participant1", "USDJPY", List.of(new PriceLevel(new BigDecimal("150.00"), 10_000_000, SELL))));
+        awaitVersion(eurjpy, 1);
+
+        // then
+        assertEquals("[PriceLevel{side=SELL, price=165.02, quantity=1000000}]", priceLevels(eurjpy.getOrdersBySide(SELL)).toString());
+    }
+
+    @Test
+    void should_merge_levels__when_rounded_prices_are_equal() throws Exception {
+        // given
+        var eurjpy = synthetic("EURJPY", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.of(usdjpy), 0);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(
+                new PriceLevel(new BigDecimal("1.1001"), 1_000_000, BUY),
+                new PriceLevel(new BigDecimal("1.1000"), 2_000_000, BUY)
+        )));
+        usdjpy.handleMarketDataEvent(new MarketData("participant1", "USDJPY", List.of(new PriceLevel(new BigDecimal("150.00"), 1_000_000_000, BUY))));
+        awaitVersion(eurjpy, 1);
+
+        // then
+        assertEquals("[PriceLevel{side=BUY, price=165, quantity=3000000}]", priceLevels(eurjpy.getOrdersBySide(BUY)).toString());
+    }
+
+    @Test
+    void should_cap_number_of_levels() throws Exception {
+        // given
+        var eurjpy = synthetic("EURJPY", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.of(usdjpy), 2, 3);
+
+        // when
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(
+                new PriceLevel(new BigDecimal("1.10"), 1_000_000, BUY),
+                new PriceLevel(new BigDecimal("1.09"), 1_000_000, BUY),
+                new PriceLevel(new BigDecimal("1.08"), 1_000_000, BUY)
+        )));
+        usdjpy.handleMarketDataEvent(new MarketData("participant1", "USDJPY", List.of(new PriceLevel(new BigDecimal("150.00"), 1_000_000_000, BUY))));
+        awaitVersion(eurjpy, 1);
+
+        // then
+        assertEquals(
+                "[PriceLevel{side=BUY, price=165.000, quantity=1000000}, PriceLevel{side=BUY, price=163.500, quantity=1000000}]",
+                priceLevels(eurjpy.getOrdersBySide(BUY)).toString()
+        );
+    }
+
+    @Test
+    void should_not_change_version__when_legs_give_same_cross() throws Exception {
+        // given
+        var eurjpy = synthetic("EURJPY", SyntheticOrderBook.Leg.of(eurusd), SyntheticOrderBook.Leg.of(usdjpy), 3);
+        var eurusdQuote = new MarketData("participant1", "EURUSD", List.of(new PriceLevel(new BigDecimal("1.10"), 1_000_000, BUY)));
+        eurusd.handleMarketDataEvent(eurusdQuote);
+        usdjpy.handleMarketDataEvent(new MarketData("participant1", "USDJPY", List.of(new PriceLevel(new BigDecimal("150.00"), 1_000_000_000, BUY))));
+        awaitVersion(eurjpy, 1);
+
+        // when
+        eurusd.handleMarketDataEvent(eurusdQuote);
+        eurusd.handleMarketDataEvent(new MarketData("participant1", "EURUSD", List.of(new PriceLevel(new BigDecimal("1.11"), 1_000_000, BUY))));
+        awaitVersion(eurjpy, 2);
+        Thread.sleep(50);
+
+        // then
+        assertEquals(2, eurjpy.getVersion());
+        assertEquals("[PriceLevel{side=BUY, price=166.500, quantity=1000000}]", priceLevels(eurjpy.getOrdersBySide(BUY)).toString());
+    }
+
+    private SyntheticOrderBook synthetic(String instrument, SyntheticOrderBook.Leg first, SyntheticOrderBook.Leg second, int scale) {
+        return synthetic(instrument, first, second, OrderBook.TOP_OF_BOOK_LEVELS, scale);
+    }
+
+    private SyntheticOrderBook synthetic(String instrument, SyntheticOrderBook.Leg first, SyntheticOrderBook.Leg second, int levels, int scale) {
+        var syntheticOrderBook = new SyntheticOrderBook(instrument, first, second, levels, scale);
+        syntheticOrderBooks.add(syntheticOrderBook);
+        return syntheticOrderBook;
+    }
+
+    private static void awaitVersion(SyntheticOrderBook syntheticOrderBook, long version) throws InterruptedException {
+        for (int i = 0; i < 500 && syntheticOrderBook.getVersion() < version; i++) Thread.sleep(10);
+        assertTrue(syntheticOrderBook.getVersion() >= version, String.format(
+                "%s did not reach version %s, it is at %s", syntheticOrderBook.getInstrument(), version, syntheticOrderBook.getVersion()
+        ));
+    }
+
+    private static List<PriceLevel> priceLevels(List<Order> orders) {
+        var priceLevels = new ArrayList<PriceLevel>();
+        orders.forEach(order -> priceLevels.add(order.priceLevel));
+        return priceLevels;
+    }
+}
@@ -0,0 +1,116 @@
+package orderbook.marketdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.math.BigDecimal.valueOf;
+import static orderbook.marketdata.MarketData.MAX_ELEMENTS_PER_SIDE;
+import static orderbook.marketdata.Side.BUY;
+import static orderbook.marketdata.Side.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MarketDataDecoderTest {
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final MarketDataDecoder decoder = new MarketDataDecoder();
+
+    @Test
+    void should_decode_messages_written_back_to_back() {
+        // given
+        MarketDataEncoder.encode(new MutableMarketData().reset("participant1", "EURUSD").addLevel(BUY, 110_000, 5).addLevel(SELL, 110_002, 7), buffer);
+        MarketDataEncoder.encode(new MutableMarketData().reset("participant2", "EURUSD").addLevel(SELL, 110_001, 3), buffer);
+
+        // when
+        var first = decoder.wrap(buffer, 0).decodeInto(new MutableMarketData());
+        var second = decoder.wrap(buffer, decoder.length()).decodeInto(new MutableMarketData());
+
+        // then
+        assertEquals("participant1", first.getSource());
+        assertEquals("EURUSD", first.getInstrument());
+        assertEquals(110_000, first.getScaledPrice(BUY, 0));
+        assertEquals(5, first.getQuantity(BUY, 0));
+        assertEquals(110_002, first.getScaledPrice(SELL, 0));
+        assertEquals(7, first.getQuantity(SELL, 0));
+        assertEquals("participant2", second.getSource());
+        assertEquals(0, second.getLevelCount(BUY));
+        assertEquals(110_001, second.getScaledPrice(SELL, 0));
+        assertEquals(buffer.position(), buffer.getInt(0) + decoder.length());
+    }
+
+    @Test
+    void should_build_market_data_with_prices_of_scale() {
+        // given
+        MarketDataEncoder.encode(new MutableMarketData().reset("participant1", "EURUSD").addLevel(BUY, 110_000, 5).addLevel(SELL, 110_002, 7), buffer);
+
+        // when
+        var marketData = decoder.wrap(buffer, 0).toMarketData(5);
+
+        // then
+        assertEquals(new MarketData("participant1", "EURUSD", List.of(
+                new PriceLevel(valueOf(110_000, 5), 5, BUY),
+                new PriceLevel(valueOf(110_002, 5), 7, SELL)
+        )).toString(), marketData.toString());
+    }
+
+    @Test
+    void should_not_allocate__when_source_and_instrument_were_seen() {
+        // given
+        var event = new MutableMarketData().reset("participant1", "EURUSD");
+        for (int level = 0; level < MAX_ELEMENTS_PER_SIDE; level++) event.addLevel(BUY, 110_000 - level, 1 + level).addLevel(SELL, 110_001 + level, 1 + level);
+        MarketDataEncoder.encode(event, buffer);
+        var decoded = new MutableMarketData();
+        var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var threadId = Thread.currentThread().getId();
+
+        // when
+        var leastAllocated = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            var allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100_000; i++) decoder.wrap(buffer, 0).decodeInto(decoded);
+            leastAllocated = Math.min(leastAllocated, threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+
+        // then
+        assertEquals(0, leastAllocated);
+    }
+
+    @Test
+    void should_throw__when_side_has_too_many_levels() {
+        // given
+        buffer.putInt(0).putShort((short) 1).put((byte) 'S').putShort((short) 1).put((byte) 'I').put((byte) (MAX_ELEMENTS_PER_SIDE + 1)).put((byte) 0);
+        buffer.putInt(0, buffer.position() + (MAX_ELEMENTS_PER_SIDE + 1) * MarketDataDecoder.LEVEL_BYTES);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> decoder.wrap(buffer, 0));
+
+        // then
+        assertEquals("No more than 64 elements for BUY side can be specified but the actual amount was 65", exception.getMessage());
+    }
+
+    @Test
+    void should_throw__when_length_does_not_match_levels() {
+        // given
+        MarketDataEncoder.encode(new MutableMarketData().reset("participant1", "EURUSD").addLevel(BUY, 110_000, 5), buffer);
+        buffer.putInt(0, buffer.getInt(0) - 1);
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> decoder.wrap(buffer, 0));
+    }
+
+    @Test
+    void should_throw__when_level_is_not_positive() {
+        // given
+        MarketDataEncoder.encode(new MutableMarketData().reset("participant1", "EURUSD").addLevel(BUY, 110_000, 5), buffer);
+        buffer.putLong(buffer.position() - Long.BYTES, 0);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> decoder.wrap(buffer, 0).decodeInto(new MutableMarketData()));
+
+        // then
+        assertEquals("quantity must be positive", exception.getMessage());
+    }
+}